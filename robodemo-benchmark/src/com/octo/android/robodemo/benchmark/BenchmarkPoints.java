@@ -0,0 +1,65 @@
+package com.octo.android.robodemo.benchmark;
+
+import java.util.Random;
+
+import com.octo.android.robodemo.core.PointArray;
+
+/**
+ * Generates the demos used by benchmarks : points spread over a phone sized screen, with a few distinct texts, as
+ * found in real demos.
+ * 
+ * @author sni
+ * 
+ */
+final class BenchmarkPoints {
+
+    static final int SCREEN_WIDTH = 720;
+    static final int SCREEN_HEIGHT = 1280;
+    static final int CELL_SIZE = 72;
+    static final int DRAWABLE_SIZE = 64;
+    static final int MAX_TEXT_WIDTH = 300;
+    static final int MARGIN = 8;
+    private static final int CHAR_WIDTH = 14;
+    private static final int LINE_HEIGHT = 24;
+
+    private static final String[] TEXTS = { "Tap here to refresh the list", "Swipe left to delete an item",
+            "Long press to select several items", "Use this button to clear the list", "Open the menu to show this demo again" };
+
+    private BenchmarkPoints() {
+    }
+
+    /**
+     * @param count
+     *            the number of points.
+     * @return the same points for a given count, on every call.
+     */
+    static PointArray createPoints( int count ) {
+        Random random = new Random( count );
+        int[] xs = new int[ count ];
+        int[] ys = new int[ count ];
+        String[] texts = new String[ count ];
+        for ( int index = 0; index < count; index++ ) {
+            xs[ index ] = random.nextInt( SCREEN_WIDTH );
+            ys[ index ] = random.nextInt( SCREEN_HEIGHT );
+            texts[ index ] = TEXTS[ random.nextInt( TEXTS.length ) ] + ( index % 10 == 0 ? "" : " " + index );
+        }
+        return new PointArray( xs, ys, texts );
+    }
+
+    /**
+     * Measures a label as if it was monospaced, standing for StaticLayout on a plain JVM.
+     * 
+     * @param text
+     *            the text of the label.
+     * @param maxWidth
+     *            the width at which the text is wrapped.
+     * @param outSize
+     *            receives the width and the height of the label.
+     */
+    static void measureText( String text, int maxWidth, int[] outSize ) {
+        int width = text.length() * CHAR_WIDTH;
+        int lineCount = Math.max( 1, ( width + maxWidth - 1 ) / maxWidth );
+        outSize[ 0 ] = Math.min( width, maxWidth );
+        outSize[ 1 ] = lineCount * LINE_HEIGHT;
+    }
+}
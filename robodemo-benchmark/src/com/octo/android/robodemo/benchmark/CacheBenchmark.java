@@ -0,0 +1,57 @@
+package com.octo.android.robodemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.octo.android.robodemo.core.LruCache;
+import com.octo.android.robodemo.core.PointArray;
+
+/**
+ * Benchmarks the hit path of the cache of measured labels : every label of a demo is already cached, as when a demo is
+ * shown again.
+ * 
+ * @author sni
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int pointCount;
+
+    private String[] keys;
+    private LruCache< String, int[] > cache;
+
+    @Setup
+    public void setUp() {
+        PointArray points = BenchmarkPoints.createPoints( pointCount );
+        keys = new String[ pointCount ];
+        cache = new LruCache< String, int[] >( pointCount );
+        for ( int index = 0; index < pointCount; index++ ) {
+            // new instances, so that lookups hash and compare strings as they would with texts read from resources.
+            keys[ index ] = new String( points.getText( index ) );
+            int[] size = new int[ 2 ];
+            BenchmarkPoints.measureText( keys[ index ], BenchmarkPoints.MAX_TEXT_WIDTH, size );
+            cache.put( new String( keys[ index ] ), size );
+        }
+    }
+
+    @Benchmark
+    public int getAllLabels() {
+        int result = 0;
+        for ( String key : keys ) {
+            result += cache.get( key )[ 0 ];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.octo.android.robodemo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.octo.android.robodemo.core.LabelPlacer;
+import com.octo.android.robodemo.core.PointArray;
+import com.octo.android.robodemo.core.SpatialGrid;
+
+/**
+ * Benchmarks the placement of labels, and hit tests on the grid of placed points. Labels are measured once, before
+ * placements, as adapters do with the layouts of texts.
+ * 
+ * @author sni
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int pointCount;
+
+    private PointArray points;
+    private int[] pointXs;
+    private int[] pointYs;
+    private int[] drawableBounds;
+    private int[] labelWidths;
+    private int[] labelHeights;
+    private int[] textXs;
+    private int[] textYs;
+    private SpatialGrid hitGrid;
+
+    @Setup
+    public void setUp() {
+        points = BenchmarkPoints.createPoints( pointCount );
+        pointXs = new int[ pointCount ];
+        pointYs = new int[ pointCount ];
+        drawableBounds = new int[ pointCount * 4 ];
+        labelWidths = new int[ pointCount ];
+        labelHeights = new int[ pointCount ];
+        textXs = new int[ pointCount ];
+        textYs = new int[ pointCount ];
+        hitGrid = new SpatialGrid( BenchmarkPoints.SCREEN_WIDTH, BenchmarkPoints.SCREEN_HEIGHT, BenchmarkPoints.CELL_SIZE );
+        int halfSize = BenchmarkPoints.DRAWABLE_SIZE / 2;
+        int[] size = new int[ 2 ];
+        for ( int index = 0; index < pointCount; index++ ) {
+            pointXs[ index ] = points.getX( index );
+            pointYs[ index ] = points.getY( index );
+            drawableBounds[ index * 4 ] = pointXs[ index ] - halfSize;
+            drawableBounds[ index * 4 + 1 ] = pointYs[ index ] - halfSize;
+            drawableBounds[ index * 4 + 2 ] = pointXs[ index ] + halfSize;
+            drawableBounds[ index * 4 + 3 ] = pointYs[ index ] + halfSize;
+            BenchmarkPoints.measureText( points.getText( index ), BenchmarkPoints.MAX_TEXT_WIDTH, size );
+            labelWidths[ index ] = size[ 0 ];
+            labelHeights[ index ] = size[ 1 ];
+            hitGrid.insert( index, drawableBounds[ index * 4 ], drawableBounds[ index * 4 + 1 ], drawableBounds[ index * 4 + 2 ],
+                    drawableBounds[ index * 4 + 3 ] );
+        }
+    }
+
+    @Benchmark
+    public int[] placeLabels() {
+        LabelPlacer labelPlacer = new LabelPlacer( BenchmarkPoints.SCREEN_WIDTH, BenchmarkPoints.SCREEN_HEIGHT, BenchmarkPoints.CELL_SIZE );
+        int margin = BenchmarkPoints.DRAWABLE_SIZE / 4 + BenchmarkPoints.MARGIN;
+        labelPlacer.placeLabels( pointCount, pointXs, pointYs, drawableBounds, labelWidths, labelHeights, margin, margin, BenchmarkPoints.MARGIN,
+                textXs, textYs );
+        return textXs;
+    }
+
+    @Benchmark
+    public int hitTestAllPoints() {
+        int result = 0;
+        for ( int index = 0; index < pointCount; index++ ) {
+            result += hitGrid.findHighestIdAt( points.getX( index ), points.getY( index ), 0, pointCount - 1 );
+        }
+        return result;
+    }
+}
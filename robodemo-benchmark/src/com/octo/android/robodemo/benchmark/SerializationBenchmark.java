@@ -0,0 +1,135 @@
+package com.octo.android.robodemo.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.octo.android.robodemo.core.PointArray;
+import com.octo.android.robodemo.core.PointCodec;
+
+/**
+ * Benchmarks the binary form of points, used to pass demos between activities, against points written one by one as
+ * an ArrayList of LabeledPoint is written to a parcel : the class name of each point, then its coordinates and its
+ * text, strings being written as UTF-16 chars. The sizes of both forms are checked by LabeledPointArrayParcelTest in
+ * robodemo-lib-tests.
+ * 
+ * @author sni
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int pointCount;
+
+    private static final String POINT_CLASS_NAME = "com.octo.android.robodemo.LabeledPoint";
+
+    private PointArray points;
+    private byte[] encodedPoints;
+    private byte[] listedPoints;
+
+    @Setup
+    public void setUp() throws IOException {
+        points = BenchmarkPoints.createPoints( pointCount );
+        encodedPoints = PointCodec.encode( points );
+        listedPoints = writePointList( points );
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return PointCodec.encode( points );
+    }
+
+    @Benchmark
+    public PointArray decode() {
+        return PointCodec.decode( encodedPoints );
+    }
+
+    @Benchmark
+    public byte[] writeList() throws IOException {
+        return writePointList( points );
+    }
+
+    @Benchmark
+    public ArrayList< ListedPoint > readList() throws IOException {
+        return readPointList( listedPoints );
+    }
+
+    private static byte[] writePointList( PointArray points ) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( byteArrayOutputStream );
+        out.writeInt( points.size() );
+        for ( int index = 0; index < points.size(); index++ ) {
+            writeString( out, POINT_CLASS_NAME );
+            out.writeInt( points.getX( index ) );
+            out.writeInt( points.getY( index ) );
+            writeString( out, points.getText( index ) );
+        }
+        out.flush();
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private static ArrayList< ListedPoint > readPointList( byte[] bytes ) throws IOException {
+        DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+        int size = in.readInt();
+        ArrayList< ListedPoint > listPoints = new ArrayList< ListedPoint >( size );
+        for ( int index = 0; index < size; index++ ) {
+            if ( !POINT_CLASS_NAME.equals( readString( in ) ) ) {
+                throw new IOException( "Unexpected class of point " + index );
+            }
+            listPoints.add( new ListedPoint( in.readInt(), in.readInt(), readString( in ) ) );
+        }
+        return listPoints;
+    }
+
+    private static void writeString( DataOutputStream out, String string ) throws IOException {
+        if ( string == null ) {
+            out.writeInt( -1 );
+            return;
+        }
+        out.writeInt( string.length() );
+        out.writeChars( string );
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        int length = in.readInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        char[] chars = new char[ length ];
+        for ( int index = 0; index < length; index++ ) {
+            chars[ index ] = in.readChar();
+        }
+        return new String( chars );
+    }
+
+    /**
+     * A point read from a list, standing for LabeledPoint on a plain JVM.
+     */
+    public static final class ListedPoint {
+        final int x;
+        final int y;
+        final String text;
+
+        ListedPoint( int x, int y, String text ) {
+            this.x = x;
+            this.y = y;
+            this.text = text;
+        }
+    }
+}
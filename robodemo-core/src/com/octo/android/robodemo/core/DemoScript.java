@@ -0,0 +1,239 @@
+package com.octo.android.robodemo.core;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * A set of demos compiled by {@link DemoScriptCompiler}, read in place from a buffer. Nothing is decoded up front :
+ * points are read field by field from the buffer and texts are only decoded when asked for, so a script holding
+ * hundreds of demos can be opened, typically from a memory mapped asset, at no heap cost.
+ * 
+ * Format : a header (magic, version, demo count, string count), then one entry per demo (name, delay between points,
+ * point count, index of its first point), one entry per point (kind and flags, x, y, anchor, label), the offsets of
+ * strings and finally the strings, as a byte length followed by UTF-8 bytes. All ints are big endian, names, anchors
+ * and labels are indexes of strings.
+ * 
+ * Scripts are immutable and can be read by several threads.
+ * 
+ * @author sni
+ * 
+ */
+public final class DemoScript {
+
+    /** Kind of points located relatively to the size of the screen, x and y are percents of its width and height. */
+    public static final int POINT_IN_SCREEN = 0;
+    /** Kind of points located in screen coordinates, x and y are in px. */
+    public static final int POINT_IN_PIXELS = 1;
+    /** Kind of points anchored to a view, x and y are percents of the width and height of the view. */
+    public static final int POINT_ANCHORED = 2;
+
+    /** Percents are stored as ints, in hundredths of percent. */
+    public static final int PERCENT_SCALE = 100;
+
+    static final int MAGIC = 0x52445343; // "RDSC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * 4;
+    static final int DEMO_ENTRY_SIZE = 4 * 4;
+    static final int POINT_ENTRY_SIZE = 5 * 4;
+    static final int KIND_MASK = 0xff;
+    static final int FLAG_LABEL_RESOURCE = 0x100;
+    static final int NO_STRING = -1;
+    static final String CHARSET = "UTF-8";
+
+    private final ByteBuffer buffer;
+    private final int demoCount;
+    private final int stringCount;
+    private final int pointsOffset;
+    private final int stringOffsetsOffset;
+
+    private DemoScript( ByteBuffer buffer, int demoCount, int pointCount, int stringCount ) {
+        this.buffer = buffer;
+        this.demoCount = demoCount;
+        this.stringCount = stringCount;
+        this.pointsOffset = HEADER_SIZE + demoCount * DEMO_ENTRY_SIZE;
+        this.stringOffsetsOffset = pointsOffset + pointCount * POINT_ENTRY_SIZE;
+    }
+
+    /**
+     * Reads a script from a buffer. Only the header is checked, the buffer is kept and read on demand.
+     * 
+     * @param buffer
+     *            a buffer holding a compiled script from index 0 to its limit. It must not be modified afterwards.
+     * @return the script.
+     * @throws IllegalArgumentException
+     *             if the buffer doesn't hold a compiled script.
+     */
+    public static DemoScript read( ByteBuffer buffer ) {
+        if ( buffer.limit() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ) {
+            throw new IllegalArgumentException( "Not a demo script" );
+        }
+        int version = buffer.getInt( 4 );
+        if ( version != VERSION ) {
+            throw new IllegalArgumentException( "Unsupported demo script version " + version );
+        }
+        int demoCount = buffer.getInt( 8 );
+        int stringCount = buffer.getInt( 12 );
+        if ( demoCount < 0 || stringCount < 0 || buffer.limit() < HEADER_SIZE + (long) demoCount * DEMO_ENTRY_SIZE ) {
+            throw new IllegalArgumentException( "Truncated demo script" );
+        }
+        int pointCount = 0;
+        for ( int demo = 0; demo < demoCount; demo++ ) {
+            int demoOffset = HEADER_SIZE + demo * DEMO_ENTRY_SIZE;
+            pointCount = Math.max( pointCount, buffer.getInt( demoOffset + 12 ) + buffer.getInt( demoOffset + 8 ) );
+        }
+        long length = HEADER_SIZE + (long) demoCount * DEMO_ENTRY_SIZE + (long) pointCount * POINT_ENTRY_SIZE + stringCount * 4L;
+        if ( buffer.limit() < length ) {
+            throw new IllegalArgumentException( "Truncated demo script" );
+        }
+        return new DemoScript( buffer, demoCount, pointCount, stringCount );
+    }
+
+    public int getDemoCount() {
+        return demoCount;
+    }
+
+    /**
+     * Finds a demo by name, without decoding the names of other demos.
+     * 
+     * @param name
+     *            the name of the demo.
+     * @return the index of the demo, or -1 if there is no demo with this name.
+     */
+    public int findDemo( String name ) {
+        byte[] encodedName = toBytes( name );
+        for ( int demo = 0; demo < demoCount; demo++ ) {
+            if ( isStringEqual( getDemoInt( demo, 0 ), encodedName ) ) {
+                return demo;
+            }
+        }
+        return -1;
+    }
+
+    public String getDemoName( int demo ) {
+        return getString( getDemoInt( demo, 0 ) );
+    }
+
+    /**
+     * @param demo
+     *            the index of a demo.
+     * @return the delay between two points of the demo, in ms, or 0 if the demo uses the default delay.
+     */
+    public long getDelayBetweenPoints( int demo ) {
+        return getDemoInt( demo, 1 );
+    }
+
+    public int getPointCount( int demo ) {
+        return getDemoInt( demo, 2 );
+    }
+
+    /**
+     * @return one of {@link #POINT_IN_SCREEN}, {@link #POINT_IN_PIXELS} or {@link #POINT_ANCHORED}.
+     */
+    public int getPointKind( int demo, int point ) {
+        return getPointInt( demo, point, 0 ) & KIND_MASK;
+    }
+
+    /**
+     * @return the x coordinate of the point, in px or in hundredths of percent depending on its kind.
+     * @see #getPointKind(int, int)
+     */
+    public int getPointX( int demo, int point ) {
+        return getPointInt( demo, point, 1 );
+    }
+
+    /**
+     * @return the y coordinate of the point, in px or in hundredths of percent depending on its kind.
+     * @see #getPointKind(int, int)
+     */
+    public int getPointY( int demo, int point ) {
+        return getPointInt( demo, point, 2 );
+    }
+
+    /**
+     * @return the name of the id resource of the view a point is anchored to, or null if the point is not anchored.
+     */
+    public String getAnchorName( int demo, int point ) {
+        return getString( getPointInt( demo, point, 3 ) );
+    }
+
+    /**
+     * @return the text of the label of a point, or the name of its string resource if
+     *         {@link #isLabelResource(int, int)}.
+     */
+    public String getLabel( int demo, int point ) {
+        return getString( getPointInt( demo, point, 4 ) );
+    }
+
+    /**
+     * @return true if the label of a point is the name of a string resource, false if it is a literal text.
+     */
+    public boolean isLabelResource( int demo, int point ) {
+        return ( getPointInt( demo, point, 0 ) & FLAG_LABEL_RESOURCE ) != 0;
+    }
+
+    private int getDemoInt( int demo, int field ) {
+        if ( demo < 0 || demo >= demoCount ) {
+            throw new IndexOutOfBoundsException( "Invalid demo " + demo );
+        }
+        return buffer.getInt( HEADER_SIZE + demo * DEMO_ENTRY_SIZE + field * 4 );
+    }
+
+    private int getPointInt( int demo, int point, int field ) {
+        if ( point < 0 || point >= getPointCount( demo ) ) {
+            throw new IndexOutOfBoundsException( "Invalid point " + point + " of demo " + demo );
+        }
+        int pointIndex = getDemoInt( demo, 3 ) + point;
+        return buffer.getInt( pointsOffset + pointIndex * POINT_ENTRY_SIZE + field * 4 );
+    }
+
+    private int getStringOffset( int stringIndex ) {
+        if ( stringIndex < 0 || stringIndex >= stringCount ) {
+            throw new IllegalArgumentException( "Invalid string index " + stringIndex );
+        }
+        int stringOffset = buffer.getInt( stringOffsetsOffset + stringIndex * 4 );
+        if ( stringOffset < 0 || stringOffset > buffer.limit() - 4 || buffer.getInt( stringOffset ) > buffer.limit() - stringOffset - 4 ) {
+            throw new IllegalArgumentException( "Truncated demo script" );
+        }
+        return stringOffset;
+    }
+
+    private String getString( int stringIndex ) {
+        if ( stringIndex == NO_STRING ) {
+            return null;
+        }
+        int stringOffset = getStringOffset( stringIndex );
+        byte[] bytes = new byte[ buffer.getInt( stringOffset ) ];
+        // reads from a duplicate, so that the position of the shared buffer never changes.
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position( stringOffset + 4 );
+        duplicate.get( bytes );
+        try {
+            return new String( bytes, CHARSET );
+        } catch ( UnsupportedEncodingException e ) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private boolean isStringEqual( int stringIndex, byte[] encodedString ) {
+        int stringOffset = getStringOffset( stringIndex );
+        if ( buffer.getInt( stringOffset ) != encodedString.length ) {
+            return false;
+        }
+        for ( int index = 0; index < encodedString.length; index++ ) {
+            if ( buffer.get( stringOffset + 4 + index ) != encodedString[ index ] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static byte[] toBytes( String text ) {
+        try {
+            return text.getBytes( CHARSET );
+        } catch ( UnsupportedEncodingException e ) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.octo.android.robodemo.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles demo definitions into the binary form read by {@link DemoScript}. It is run at build time, see
+ * {@link #main(String[])}.
+ * 
+ * Definitions are line based, blank lines and lines starting with # are ignored :
+ * 
+ * <pre>
+ * # starts a demo, the following lines define it.
+ * demo main-activity
+ * # delay between two points, in ms.
+ * delay 2000
+ * # a point located relatively to the screen, or in px, with a literal label.
+ * point 95% 5% "Refresh the list using this menu item"
+ * point 120px 300px "Some text"
+ * # a point anchored to a view, in percents of its size, with a label taken from a string resource.
+ * anchor @id/button_clear 50% 0% @string/text_move_demo_step_1
+ * </pre>
+ * 
+ * Literal labels are quoted, \" and \\ are escaped with a backslash and \n is a new line.
+ * 
+ * @author sni
+ * 
+ */
+public final class DemoScriptCompiler {
+
+    /** Extension of the files compiled when a directory is given to {@link #main(String[])}. */
+    public static final String SOURCE_EXTENSION = ".demo";
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile( "\"((?:[^\"\\\\]|\\\\.)*)\"|(\\S+)" );
+    private static final String ID_PREFIX = "@id/";
+    private static final String STRING_PREFIX = "@string/";
+
+    private final List< String > listStrings = new ArrayList< String >();
+    private final Map< String, Integer > mapStringIndexes = new HashMap< String, Integer >();
+    private final Set< String > setDemoNames = new HashSet< String >();
+    // 4 ints per demo and 5 ints per point, as they are written.
+    private final List< int[] > listDemos = new ArrayList< int[] >();
+    private final List< int[] > listPoints = new ArrayList< int[] >();
+
+    private String sourceName;
+    private int lineNumber;
+
+    /**
+     * Compiles demo definition files, or all files ending with {@link #SOURCE_EXTENSION} in directories, into one
+     * script.
+     * 
+     * @param args
+     *            the files or directories to compile, followed by the file to write.
+     */
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 2 ) {
+            System.err.println( "Usage: DemoScriptCompiler <source file or directory>... <output file>" );
+            System.exit( 1 );
+        }
+        DemoScriptCompiler compiler = new DemoScriptCompiler();
+        try {
+            for ( int index = 0; index < args.length - 1; index++ ) {
+                compiler.compile( new File( args[ index ] ) );
+            }
+        } catch ( IllegalArgumentException e ) {
+            System.err.println( e.getMessage() );
+            System.exit( 1 );
+        }
+        File outputFile = new File( args[ args.length - 1 ] );
+        if ( outputFile.getParentFile() != null ) {
+            outputFile.getParentFile().mkdirs();
+        }
+        OutputStream outputStream = new FileOutputStream( outputFile );
+        try {
+            outputStream.write( compiler.toByteArray() );
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private void compile( File file ) throws IOException {
+        if ( file.isDirectory() ) {
+            File[] files = file.listFiles();
+            // sorted so that the output doesn't depend on the file system.
+            Arrays.sort( files );
+            for ( File child : files ) {
+                if ( child.isDirectory() || child.getName().endsWith( SOURCE_EXTENSION ) ) {
+                    compile( child );
+                }
+            }
+            return;
+        }
+        Reader reader = new InputStreamReader( new FileInputStream( file ), DemoScript.CHARSET );
+        try {
+            compile( reader, file.getPath() );
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Compiles demo definitions and adds them to the script being built.
+     * 
+     * @param reader
+     *            the definitions to read.
+     * @param sourceName
+     *            the name of the definitions, used in error messages.
+     * @throws IOException
+     *             if the definitions could not be read.
+     * @throws IllegalArgumentException
+     *             if the definitions are not valid, the message gives the source and line of the error.
+     */
+    public void compile( Reader reader, String sourceName ) throws IOException {
+        this.sourceName = sourceName;
+        this.lineNumber = 0;
+        int[] currentDemo = null;
+        BufferedReader bufferedReader = new BufferedReader( reader );
+        String line;
+        while ( ( line = bufferedReader.readLine() ) != null ) {
+            lineNumber++;
+            String trimmedLine = line.trim();
+            if ( trimmedLine.length() == 0 || trimmedLine.startsWith( "#" ) ) {
+                continue;
+            }
+            List< String > tokens = tokenize( trimmedLine );
+            String keyword = tokens.get( 0 );
+            if ( "demo".equals( keyword ) ) {
+                checkArgumentCount( tokens, 1 );
+                String name = tokens.get( 1 );
+                if ( !setDemoNames.add( name ) ) {
+                    throw error( "Duplicate demo " + name );
+                }
+                currentDemo = new int[] { getStringIndex( name ), 0, 0, listPoints.size() };
+                listDemos.add( currentDemo );
+            } else if ( currentDemo == null ) {
+                throw error( "Expected 'demo <name>' before '" + keyword + "'" );
+            } else if ( "delay".equals( keyword ) ) {
+                checkArgumentCount( tokens, 1 );
+                currentDemo[ 1 ] = parseInt( tokens.get( 1 ) );
+            } else if ( "point".equals( keyword ) ) {
+                checkArgumentCount( tokens, 3 );
+                boolean isInPercents = tokens.get( 1 ).endsWith( "%" );
+                if ( isInPercents != tokens.get( 2 ).endsWith( "%" ) ) {
+                    throw error( "Both coordinates of a point must be in % or in px" );
+                }
+                int kind = isInPercents ? DemoScript.POINT_IN_SCREEN : DemoScript.POINT_IN_PIXELS;
+                int x = isInPercents ? parsePercent( tokens.get( 1 ) ) : parsePixels( tokens.get( 1 ) );
+                int y = isInPercents ? parsePercent( tokens.get( 2 ) ) : parsePixels( tokens.get( 2 ) );
+                addPoint( currentDemo, kind, x, y, DemoScript.NO_STRING, tokens.get( 3 ) );
+            } else if ( "anchor".equals( keyword ) ) {
+                checkArgumentCount( tokens, 4 );
+                String anchor = tokens.get( 1 );
+                if ( !anchor.startsWith( ID_PREFIX ) || anchor.length() == ID_PREFIX.length() ) {
+                    throw error( "Expected a view id like @id/name, found " + anchor );
+                }
+                int anchorIndex = getStringIndex( anchor.substring( ID_PREFIX.length() ) );
+                addPoint( currentDemo, DemoScript.POINT_ANCHORED, parsePercent( tokens.get( 2 ) ), parsePercent( tokens.get( 3 ) ), anchorIndex,
+                        tokens.get( 4 ) );
+            } else {
+                throw error( "Unknown keyword '" + keyword + "'" );
+            }
+        }
+    }
+
+    /**
+     * @return the binary form of all compiled demos, that can be read by {@link DemoScript#read(ByteBuffer)}.
+     */
+    public byte[] toByteArray() {
+        byte[][] encodedStrings = new byte[ listStrings.size() ][];
+        int length = DemoScript.HEADER_SIZE + listDemos.size() * DemoScript.DEMO_ENTRY_SIZE + listPoints.size() * DemoScript.POINT_ENTRY_SIZE
+                + listStrings.size() * 4;
+        int stringsOffset = length;
+        for ( int stringIndex = 0; stringIndex < encodedStrings.length; stringIndex++ ) {
+            encodedStrings[ stringIndex ] = DemoScript.toBytes( listStrings.get( stringIndex ) );
+            length += 4 + encodedStrings[ stringIndex ].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+        buffer.putInt( DemoScript.MAGIC ).putInt( DemoScript.VERSION ).putInt( listDemos.size() ).putInt( listStrings.size() );
+        for ( int[] demo : listDemos ) {
+            for ( int field : demo ) {
+                buffer.putInt( field );
+            }
+        }
+        for ( int[] point : listPoints ) {
+            for ( int field : point ) {
+                buffer.putInt( field );
+            }
+        }
+        int stringOffset = stringsOffset;
+        for ( byte[] encodedString : encodedStrings ) {
+            buffer.putInt( stringOffset );
+            stringOffset += 4 + encodedString.length;
+        }
+        for ( byte[] encodedString : encodedStrings ) {
+            buffer.putInt( encodedString.length ).put( encodedString );
+        }
+        return buffer.array();
+    }
+
+    private void addPoint( int[] demo, int kind, int x, int y, int anchorIndex, String label ) {
+        int flags = 0;
+        String labelString = label;
+        if ( label.startsWith( STRING_PREFIX ) ) {
+            flags = DemoScript.FLAG_LABEL_RESOURCE;
+            labelString = label.substring( STRING_PREFIX.length() );
+        } else if ( label.startsWith( "\"" ) ) {
+            labelString = unescape( label.substring( 1, label.length() - 1 ) );
+        } else {
+            throw error( "Expected a quoted text or a string resource like @string/name, found " + label );
+        }
+        listPoints.add( new int[] { kind | flags, x, y, anchorIndex, getStringIndex( labelString ) } );
+        demo[ 2 ]++;
+    }
+
+    private int getStringIndex( String string ) {
+        Integer stringIndex = mapStringIndexes.get( string );
+        if ( stringIndex == null ) {
+            stringIndex = listStrings.size();
+            mapStringIndexes.put( string, stringIndex );
+            listStrings.add( string );
+        }
+        return stringIndex;
+    }
+
+    /**
+     * Splits a line in tokens. Quoted tokens keep their quotes, so that labels can tell literal texts from resources.
+     */
+    private List< String > tokenize( String line ) {
+        List< String > tokens = new ArrayList< String >();
+        Matcher matcher = TOKEN_PATTERN.matcher( line );
+        while ( matcher.find() ) {
+            tokens.add( matcher.group() );
+        }
+        return tokens;
+    }
+
+    private String unescape( String text ) {
+        StringBuilder builder = new StringBuilder( text.length() );
+        for ( int index = 0; index < text.length(); index++ ) {
+            char c = text.charAt( index );
+            if ( c == '\\' && index + 1 < text.length() ) {
+                c = text.charAt( ++index );
+                builder.append( c == 'n' ? '\n' : c );
+            } else {
+                builder.append( c );
+            }
+        }
+        return builder.toString();
+    }
+
+    private void checkArgumentCount( List< String > tokens, int argumentCount ) {
+        if ( tokens.size() != argumentCount + 1 ) {
+            throw error( "'" + tokens.get( 0 ) + "' expects " + argumentCount + " arguments, found " + ( tokens.size() - 1 ) );
+        }
+    }
+
+    private int parseInt( String token ) {
+        try {
+            return Integer.parseInt( token );
+        } catch ( NumberFormatException e ) {
+            throw error( "Expected a number, found " + token );
+        }
+    }
+
+    private int parsePixels( String token ) {
+        return parseInt( token.endsWith( "px" ) ? token.substring( 0, token.length() - 2 ) : token );
+    }
+
+    private int parsePercent( String token ) {
+        if ( !token.endsWith( "%" ) ) {
+            throw error( "Expected a percent, found " + token );
+        }
+        try {
+            return Math.round( Float.parseFloat( token.substring( 0, token.length() - 1 ) ) * DemoScript.PERCENT_SCALE );
+        } catch ( NumberFormatException e ) {
+            throw error( "Expected a percent, found " + token );
+        }
+    }
+
+    private IllegalArgumentException error( String message ) {
+        return new IllegalArgumentException( sourceName + ":" + lineNumber + ": " + message );
+    }
+}
@@ -0,0 +1,152 @@
+package com.octo.android.robodemo.core;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link PointSource} reading points encoded by {@link PointCodec#encode(PointArray)} from a file. Pages are read
+ * with positional reads, only the offsets of texts are kept in memory.
+ * 
+ * The encoded points may start anywhere in the file, so that uncompressed assets can be read through the channel of
+ * their file descriptor.
+ * 
+ * @author sni
+ * 
+ */
+public final class EncodedPointSource implements PointSource {
+
+    private final FileChannel channel;
+    private final long offset;
+    private final int size;
+    private final long[] textOffsets;
+
+    /**
+     * Opens a file holding encoded points.
+     * 
+     * @param file
+     *            the file to read.
+     * @throws IOException
+     *             if the file could not be read or doesn't hold encoded points.
+     */
+    public EncodedPointSource( File file ) throws IOException {
+        this( new RandomAccessFile( file, "r" ).getChannel(), 0 );
+    }
+
+    /**
+     * Reads encoded points from a channel. The channel is closed when this source is closed.
+     * 
+     * @param channel
+     *            the channel to read.
+     * @param offset
+     *            the position of the encoded points in the channel.
+     * @throws IOException
+     *             if the channel could not be read or doesn't hold encoded points.
+     */
+    public EncodedPointSource( FileChannel channel, long offset ) throws IOException {
+        this.channel = channel;
+        this.offset = offset;
+        try {
+            ByteBuffer header = readFully( offset, PointCodec.HEADER_SIZE );
+            if ( header.getInt() != PointCodec.MAGIC ) {
+                throw new IOException( "Not an encoded point array" );
+            }
+            int version = header.getInt();
+            if ( version != PointCodec.VERSION ) {
+                throw new IOException( "Unsupported point array version " + version );
+            }
+            size = header.getInt();
+            int textCount = header.getInt();
+            if ( size < 0 || textCount < 0 ) {
+                throw new IOException( "Corrupted point array" );
+            }
+            textOffsets = new long[ textCount ];
+            long textOffset = offset + PointCodec.HEADER_SIZE + size * 3L * 4;
+            for ( int textIndex = 0; textIndex < textCount; textIndex++ ) {
+                textOffsets[ textIndex ] = textOffset;
+                textOffset += 4 + readFully( textOffset, 4 ).getInt();
+            }
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PointArray read( int from, int count ) throws IOException {
+        int pageSize = Math.max( 0, Math.min( count, size - from ) );
+        int[] xs = readInts( offset + PointCodec.HEADER_SIZE + from * 4L, pageSize );
+        int[] ys = readInts( offset + PointCodec.HEADER_SIZE + ( size + from ) * 4L, pageSize );
+        int[] textIndexes = readInts( offset + PointCodec.HEADER_SIZE + ( size * 2L + from ) * 4L, pageSize );
+
+        // only the texts of the page are read, indexed from 0 in the page.
+        Map< Integer, Integer > mapPageTextIndexes = new HashMap< Integer, Integer >();
+        for ( int index = 0; index < pageSize; index++ ) {
+            int textIndex = textIndexes[ index ];
+            if ( textIndex == PointArray.NO_TEXT ) {
+                continue;
+            }
+            if ( textIndex < PointArray.NO_TEXT || textIndex >= textOffsets.length ) {
+                throw new IOException( "Invalid text index " + textIndex + " at " + ( from + index ) );
+            }
+            Integer pageTextIndex = mapPageTextIndexes.get( textIndex );
+            if ( pageTextIndex == null ) {
+                pageTextIndex = mapPageTextIndexes.size();
+                mapPageTextIndexes.put( textIndex, pageTextIndex );
+            }
+            textIndexes[ index ] = pageTextIndex;
+        }
+        String[] texts = new String[ mapPageTextIndexes.size() ];
+        for ( Map.Entry< Integer, Integer > entry : mapPageTextIndexes.entrySet() ) {
+            texts[ entry.getValue() ] = readText( textOffsets[ entry.getKey() ] );
+        }
+        return new PointArray( xs, ys, textIndexes, texts );
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String readText( long textOffset ) throws IOException {
+        int length = readFully( textOffset, 4 ).getInt();
+        if ( length < 0 ) {
+            throw new IOException( "Corrupted point array" );
+        }
+        ByteBuffer buffer = readFully( textOffset + 4, length );
+        return PointCodec.toString( buffer.array(), 0, length );
+    }
+
+    private int[] readInts( long position, int count ) throws IOException {
+        int[] ints = new int[ count ];
+        IntBuffer buffer = readFully( position, count * 4 ).asIntBuffer();
+        buffer.get( ints );
+        return ints;
+    }
+
+    /**
+     * Reads bytes at a given position, without moving the position of the channel so that pages can be read by
+     * several threads.
+     */
+    private ByteBuffer readFully( long position, int length ) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+        while ( buffer.hasRemaining() ) {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+                throw new EOFException( "Truncated point array" );
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
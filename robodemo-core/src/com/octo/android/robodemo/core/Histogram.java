@@ -0,0 +1,129 @@
+package com.octo.android.robodemo.core;
+
+/**
+ * A low overhead histogram of positive long values. Values are counted in buckets whose bounds are powers of 2, so
+ * recording a value is a few arithmetic operations and never allocates. Percentiles are approximated by the upper
+ * bound of the bucket they fall in, i.e. within a factor of 2 of the exact value.
+ * 
+ * Histograms are not thread safe, values must be recorded and read on the same thread.
+ * 
+ * @author sni
+ * 
+ */
+public final class Histogram {
+
+    // bucket i holds values in [2^(i-1), 2^i), bucket 0 holds 0 and negative values.
+    private static final int BUCKET_COUNT = 64;
+
+    private final long[] bucketCounts = new long[ BUCKET_COUNT ];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public Histogram() {
+    }
+
+    /**
+     * Creates a copy of a histogram.
+     * 
+     * @param src
+     *            the histogram to copy.
+     */
+    public Histogram( Histogram src ) {
+        System.arraycopy( src.bucketCounts, 0, bucketCounts, 0, BUCKET_COUNT );
+        count = src.count;
+        sum = src.sum;
+        min = src.min;
+        max = src.max;
+    }
+
+    /**
+     * @param value
+     *            the value to record.
+     */
+    public void record( long value ) {
+        int bucket = value <= 0 ? 0 : Math.min( BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros( value ) );
+        bucketCounts[ bucket ]++;
+        count++;
+        sum += value;
+        if ( value < min ) {
+            min = value;
+        }
+        if ( value > max ) {
+            max = value;
+        }
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for ( int bucket = 0; bucket < BUCKET_COUNT; bucket++ ) {
+            bucketCounts[ bucket ] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the smallest recorded value, or 0 if there is none.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if there is none.
+     */
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * @return the mean of recorded values, or 0 if there is none.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Approximates a percentile of recorded values.
+     * 
+     * @param percent
+     *            the percentile to compute, from 0 to 100.
+     * @return an upper bound of the percentile, at most twice the exact value and never more than {@link #getMax()}, or
+     *         0 if there is no value.
+     */
+    public long getPercentile( double percent ) {
+        if ( count == 0 ) {
+            return 0;
+        }
+        long rank = Math.max( 1, (long) Math.ceil( count * percent / 100 ) );
+        long cumulatedCount = 0;
+        for ( int bucket = 0; bucket < BUCKET_COUNT; bucket++ ) {
+            cumulatedCount += bucketCounts[ bucket ];
+            if ( cumulatedCount >= rank ) {
+                long upperBound = bucket == 0 ? 0 : bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : ( 1L << bucket ) - 1;
+                return Math.max( getMin(), Math.min( upperBound, max ) );
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + (long) getMean() + " p50=" + getPercentile( 50 ) + " p90=" + getPercentile( 90 ) + " p99="
+                + getPercentile( 99 ) + " max=" + getMax();
+    }
+}
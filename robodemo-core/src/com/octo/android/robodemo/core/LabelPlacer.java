@@ -0,0 +1,169 @@
+package com.octo.android.robodemo.core;
+
+/**
+ * Places the labels of points so that they overlap neither each other nor the drawables of points.
+ * 
+ * Each label is tried at several anchors around its point, starting with the quadrant that points toward the center
+ * of the screen. The first anchor that doesn't overlap any drawable or any label placed before, and that stays on
+ * screen, is kept. If there is none, the anchor with the smallest overlapping area is kept. Drawables and placed labels
+ * are indexed in a {@link SpatialGrid}, so that each test only looks at nearby rectangles.
+ * 
+ * Rectangles are passed as flat int arrays, 4 ints per point : left, top, right, bottom.
+ * 
+ * @author sni
+ * 
+ */
+public final class LabelPlacer {
+
+    /**
+     * Anchors of labels relative to their point, on each axis : before (left or above), centered, after (right or
+     * below).
+     */
+    private static final int ANCHOR_BEFORE = -1;
+    private static final int ANCHOR_CENTER = 0;
+    private static final int ANCHOR_AFTER = 1;
+
+    /**
+     * Offsets of candidate anchors, {horizontal, vertical}, tried after the 4 quadrants.
+     */
+    private static final int[][] SIDE_ANCHORS = { { ANCHOR_CENTER, ANCHOR_BEFORE }, { ANCHOR_CENTER, ANCHOR_AFTER },
+            { ANCHOR_BEFORE, ANCHOR_CENTER }, { ANCHOR_AFTER, ANCHOR_CENTER } };
+
+    private final int screenWidth;
+    private final int screenHeight;
+    private final int cellSize;
+
+    // the candidate rect being tested.
+    private int candidateLeft;
+    private int candidateTop;
+    private int candidateRight;
+    private int candidateBottom;
+
+    /**
+     * Creates a placer for a given screen.
+     * 
+     * @param screenWidth
+     *            the width of the screen.
+     * @param screenHeight
+     *            the height of the screen.
+     * @param cellSize
+     *            the size of the cells used to index rectangles.
+     */
+    public LabelPlacer( int screenWidth, int screenHeight, int cellSize ) {
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Places all labels.
+     * 
+     * @param count
+     *            the number of points to place labels for.
+     * @param pointXs
+     *            the x coordinate of each point.
+     * @param pointYs
+     *            the y coordinate of each point.
+     * @param drawableBounds
+     *            the bounds of the drawable of each point, 4 ints per point.
+     * @param labelWidths
+     *            the width of the label of each point.
+     * @param labelHeights
+     *            the height of the label of each point.
+     * @param marginX
+     *            the horizontal distance between a point and its label.
+     * @param marginY
+     *            the vertical distance between a point and its label.
+     * @param padding
+     *            the space to keep around labels.
+     * @param outTextXs
+     *            receives the x coordinate of the origin of each label.
+     * @param outTextYs
+     *            receives the y coordinate of the origin of each label.
+     */
+    public void placeLabels( int count, int[] pointXs, int[] pointYs, int[] drawableBounds, int[] labelWidths, int[] labelHeights, int marginX,
+            int marginY, int padding, int[] outTextXs, int[] outTextYs ) {
+        SpatialGrid grid = new SpatialGrid( screenWidth, screenHeight, cellSize );
+        for ( int position = 0; position < count; position++ ) {
+            grid.insert( position, drawableBounds[ position * 4 ], drawableBounds[ position * 4 + 1 ], drawableBounds[ position * 4 + 2 ],
+                    drawableBounds[ position * 4 + 3 ] );
+        }
+
+        for ( int position = 0; position < count; position++ ) {
+            int x = pointXs[ position ];
+            int y = pointYs[ position ];
+            int width = labelWidths[ position ];
+            int height = labelHeights[ position ];
+            int preferredHorizontal = x > screenWidth / 2 ? ANCHOR_BEFORE : ANCHOR_AFTER;
+            int preferredVertical = y > screenHeight / 2 ? ANCHOR_BEFORE : ANCHOR_AFTER;
+
+            long bestCost = Long.MAX_VALUE;
+            int bestHorizontal = preferredHorizontal;
+            int bestVertical = preferredVertical;
+            for ( int candidate = 0; candidate < 4 + SIDE_ANCHORS.length && bestCost > 0; candidate++ ) {
+                int horizontal;
+                int vertical;
+                if ( candidate < 4 ) {
+                    horizontal = ( candidate & 1 ) == 0 ? preferredHorizontal : -preferredHorizontal;
+                    vertical = ( candidate & 2 ) == 0 ? preferredVertical : -preferredVertical;
+                } else {
+                    horizontal = SIDE_ANCHORS[ candidate - 4 ][ 0 ];
+                    vertical = SIDE_ANCHORS[ candidate - 4 ][ 1 ];
+                }
+                setCandidateRect( x, y, drawableBounds, position, width, height, horizontal, vertical, marginX, marginY, padding );
+                long cost = grid.getIntersectionArea( candidateLeft - padding, candidateTop - padding, candidateRight + padding, candidateBottom
+                        + padding, position )
+                        + getOffScreenArea( candidateLeft - padding, candidateTop - padding, candidateRight + padding, candidateBottom + padding );
+                if ( cost < bestCost ) {
+                    bestCost = cost;
+                    bestHorizontal = horizontal;
+                    bestVertical = vertical;
+                }
+            }
+
+            setCandidateRect( x, y, drawableBounds, position, width, height, bestHorizontal, bestVertical, marginX, marginY, padding );
+            outTextXs[ position ] = candidateLeft;
+            outTextYs[ position ] = candidateTop;
+            grid.insert( count + position, candidateLeft - padding, candidateTop - padding, candidateRight + padding, candidateBottom + padding );
+        }
+    }
+
+    /**
+     * Computes the rect of a label at a given anchor. Labels in a quadrant are offset by the margins from their point,
+     * labels centered on one axis are offset from the drawable of their point on the other axis.
+     */
+    private void setCandidateRect( int x, int y, int[] drawableBounds, int position, int width, int height, int horizontal, int vertical,
+            int marginX, int marginY, int padding ) {
+        boolean isInQuadrant = horizontal != ANCHOR_CENTER && vertical != ANCHOR_CENTER;
+        int left;
+        if ( horizontal == ANCHOR_BEFORE ) {
+            left = isInQuadrant ? x - marginX - width : drawableBounds[ position * 4 ] - padding - width;
+        } else if ( horizontal == ANCHOR_AFTER ) {
+            left = isInQuadrant ? x + marginX : drawableBounds[ position * 4 + 2 ] + padding;
+        } else {
+            left = x - width / 2;
+        }
+        int top;
+        if ( vertical == ANCHOR_BEFORE ) {
+            top = isInQuadrant ? y - marginY - height : drawableBounds[ position * 4 + 1 ] - padding - height;
+        } else if ( vertical == ANCHOR_AFTER ) {
+            top = isInQuadrant ? y + marginY : drawableBounds[ position * 4 + 3 ] + padding;
+        } else {
+            top = y - height / 2;
+        }
+        candidateLeft = left;
+        candidateTop = top;
+        candidateRight = left + width;
+        candidateBottom = top + height;
+    }
+
+    private long getOffScreenArea( int left, int top, int right, int bottom ) {
+        long area = (long) ( right - left ) * ( bottom - top );
+        int visibleWidth = Math.min( right, screenWidth ) - Math.max( left, 0 );
+        int visibleHeight = Math.min( bottom, screenHeight ) - Math.max( top, 0 );
+        if ( visibleWidth <= 0 || visibleHeight <= 0 ) {
+            return area;
+        }
+        return area - (long) visibleWidth * visibleHeight;
+    }
+}
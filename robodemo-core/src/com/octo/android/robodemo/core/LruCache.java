@@ -0,0 +1,122 @@
+package com.octo.android.robodemo.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread safe cache that holds a bounded amount of values and evicts the least recently used ones first. The size of
+ * each value is given by {@link #sizeOf(Object, Object)}, 1 by default, so that the cache can be bounded by a number of
+ * entries or by a memory budget.
+ * 
+ * Hits and misses are counted, to tune the size of the cache.
+ * 
+ * @param <K>
+ *            the type of keys.
+ * @param <V>
+ *            the type of values.
+ * @author sni
+ * 
+ */
+public class LruCache< K, V > {
+
+    private final LinkedHashMap< K, V > mapEntries = new LinkedHashMap< K, V >( 16, 0.75f, true );
+    private final int maxSize;
+    private int size;
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * @param maxSize
+     *            the maximum sum of the sizes of values held by this cache.
+     */
+    public LruCache( int maxSize ) {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException( "maxSize must be positive" );
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key
+     *            the key of a value.
+     * @return the value cached for key, or null if there is none. The value becomes the most recently used one.
+     */
+    public final synchronized V get( K key ) {
+        V value = mapEntries.get( key );
+        if ( value == null ) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value, and evicts the least recently used values if the cache is full.
+     * 
+     * @param key
+     *            the key of the value.
+     * @param value
+     *            the value to cache.
+     * @return the value previously cached for key, or null.
+     */
+    public final synchronized V put( K key, V value ) {
+        if ( key == null || value == null ) {
+            throw new NullPointerException( "key and value must not be null" );
+        }
+        size += sizeOf( key, value );
+        V previousValue = mapEntries.put( key, value );
+        if ( previousValue != null ) {
+            size -= sizeOf( key, previousValue );
+        }
+        trimToSize( maxSize );
+        return previousValue;
+    }
+
+    /**
+     * Removes all values from this cache. Counters are kept.
+     */
+    public final synchronized void evictAll() {
+        mapEntries.clear();
+        size = 0;
+    }
+
+    private void trimToSize( int targetSize ) {
+        Iterator< Map.Entry< K, V > > iterator = mapEntries.entrySet().iterator();
+        while ( size > targetSize && iterator.hasNext() ) {
+            Map.Entry< K, V > eldest = iterator.next();
+            size -= sizeOf( eldest.getKey(), eldest.getValue() );
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gives the size of a value, in the unit of {@link #maxSize()}. It must not change while the value is cached.
+     * 
+     * @param key
+     *            the key of the value.
+     * @param value
+     *            the value.
+     * @return the size of value, 1 by default.
+     */
+    protected int sizeOf( K key, V value ) {
+        return 1;
+    }
+
+    public final synchronized int size() {
+        return size;
+    }
+
+    public final int maxSize() {
+        return maxSize;
+    }
+
+    public final synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public final synchronized long getMissCount() {
+        return missCount;
+    }
+}
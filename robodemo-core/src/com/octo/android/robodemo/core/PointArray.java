@@ -0,0 +1,116 @@
+package com.octo.android.robodemo.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable array of labeled points, stored as one array per coordinate and a table of distinct texts. Points
+ * sharing the same text only store its index in this table.
+ * 
+ * @author sni
+ * 
+ */
+public final class PointArray {
+
+    /** Index of the text of points that have no text. */
+    public static final int NO_TEXT = -1;
+
+    private final int size;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] textIndexes;
+    private final String[] texts;
+
+    /**
+     * Creates an array of points.
+     * 
+     * @param xs
+     *            the x coordinate of each point.
+     * @param ys
+     *            the y coordinate of each point.
+     * @param pointTexts
+     *            the text of each point, may contain null.
+     */
+    public PointArray( int[] xs, int[] ys, String[] pointTexts ) {
+        this.size = xs.length;
+        this.xs = xs.clone();
+        this.ys = ys.clone();
+        this.textIndexes = new int[ size ];
+        Map< String, Integer > mapTextIndexes = new HashMap< String, Integer >();
+        List< String > listTexts = new ArrayList< String >();
+        for ( int index = 0; index < size; index++ ) {
+            String text = pointTexts[ index ];
+            int textIndex = NO_TEXT;
+            if ( text != null ) {
+                Integer existingTextIndex = mapTextIndexes.get( text );
+                if ( existingTextIndex == null ) {
+                    textIndex = listTexts.size();
+                    mapTextIndexes.put( text, textIndex );
+                    listTexts.add( text );
+                } else {
+                    textIndex = existingTextIndex;
+                }
+            }
+            textIndexes[ index ] = textIndex;
+        }
+        this.texts = listTexts.toArray( new String[ listTexts.size() ] );
+    }
+
+    /**
+     * Creates an array of points from already indexed texts. Arrays are not copied.
+     */
+    PointArray( int[] xs, int[] ys, int[] textIndexes, String[] texts ) {
+        this.size = xs.length;
+        this.xs = xs;
+        this.ys = ys;
+        this.textIndexes = textIndexes;
+        this.texts = texts;
+    }
+
+    /**
+     * @return the number of points in this array.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getX( int index ) {
+        return xs[ index ];
+    }
+
+    public int getY( int index ) {
+        return ys[ index ];
+    }
+
+    public String getText( int index ) {
+        int textIndex = textIndexes[ index ];
+        return textIndex == NO_TEXT ? null : texts[ textIndex ];
+    }
+
+    /**
+     * @param index
+     *            the index of a point.
+     * @return the index of the text of the point in the table of distinct texts, or {@link #NO_TEXT}.
+     */
+    public int getTextIndex( int index ) {
+        return textIndexes[ index ];
+    }
+
+    /**
+     * @return the number of distinct texts of points.
+     */
+    public int getTextCount() {
+        return texts.length;
+    }
+
+    /**
+     * @param textIndex
+     *            an index in the table of distinct texts.
+     * @return the text at this index.
+     */
+    public String getTextAt( int textIndex ) {
+        return texts[ textIndex ];
+    }
+}
@@ -0,0 +1,141 @@
+package com.octo.android.robodemo.core;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes a {@link PointArray} into a compact binary form, and decodes it back. Coordinates and text indexes are
+ * written as blocks of ints, followed by the table of distinct texts in UTF-8.
+ * 
+ * Format : magic, version, size, text count, xs, ys, text indexes, then the byte length and bytes of each text. All
+ * ints are big endian.
+ * 
+ * @author sni
+ * 
+ */
+public final class PointCodec {
+
+    static final int MAGIC = 0x52445041; // "RDPA"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4 * 4;
+    private static final String CHARSET = "UTF-8";
+
+    private PointCodec() {
+    }
+
+    /**
+     * @param points
+     *            the points to encode.
+     * @return the binary form of points.
+     */
+    public static byte[] encode( PointArray points ) {
+        int size = points.size();
+        int textCount = points.getTextCount();
+        byte[][] encodedTexts = new byte[ textCount ][];
+        int length = HEADER_SIZE + size * 3 * 4 + textCount * 4;
+        for ( int textIndex = 0; textIndex < textCount; textIndex++ ) {
+            encodedTexts[ textIndex ] = toBytes( points.getTextAt( textIndex ) );
+            length += encodedTexts[ textIndex ].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+        buffer.putInt( MAGIC ).putInt( VERSION ).putInt( size ).putInt( textCount );
+        for ( int index = 0; index < size; index++ ) {
+            buffer.putInt( points.getX( index ) );
+        }
+        for ( int index = 0; index < size; index++ ) {
+            buffer.putInt( points.getY( index ) );
+        }
+        for ( int index = 0; index < size; index++ ) {
+            buffer.putInt( points.getTextIndex( index ) );
+        }
+        for ( byte[] encodedText : encodedTexts ) {
+            buffer.putInt( encodedText.length ).put( encodedText );
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes
+     *            the binary form of points, as given by {@link #encode(PointArray)}.
+     * @return the decoded points.
+     * @throws IllegalArgumentException
+     *             if bytes are not a valid binary form of points.
+     */
+    public static PointArray decode( byte[] bytes ) {
+        return decode( ByteBuffer.wrap( bytes ) );
+    }
+
+    /**
+     * Decodes points from the current position of a buffer, the position is moved after the points.
+     * 
+     * @param buffer
+     *            a buffer holding the binary form of points, as given by {@link #encode(PointArray)}.
+     * @return the decoded points.
+     * @throws IllegalArgumentException
+     *             if the buffer doesn't hold a valid binary form of points.
+     */
+    public static PointArray decode( ByteBuffer buffer ) {
+        if ( buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC ) {
+            throw new IllegalArgumentException( "Not an encoded point array" );
+        }
+        int version = buffer.getInt();
+        if ( version != VERSION ) {
+            throw new IllegalArgumentException( "Unsupported point array version " + version );
+        }
+        int size = buffer.getInt();
+        int textCount = buffer.getInt();
+        if ( size < 0 || textCount < 0 || buffer.remaining() < ( size * 3L + textCount ) * 4 ) {
+            throw new IllegalArgumentException( "Truncated point array" );
+        }
+
+        int[] xs = new int[ size ];
+        int[] ys = new int[ size ];
+        int[] textIndexes = new int[ size ];
+        // relative reads only, so that direct and memory mapped buffers can be decoded too.
+        for ( int index = 0; index < size; index++ ) {
+            xs[ index ] = buffer.getInt();
+        }
+        for ( int index = 0; index < size; index++ ) {
+            ys[ index ] = buffer.getInt();
+        }
+        for ( int index = 0; index < size; index++ ) {
+            textIndexes[ index ] = buffer.getInt();
+        }
+
+        String[] texts = new String[ textCount ];
+        for ( int textIndex = 0; textIndex < textCount; textIndex++ ) {
+            int length = buffer.getInt();
+            if ( length < 0 || length > buffer.remaining() ) {
+                throw new IllegalArgumentException( "Truncated point array" );
+            }
+            byte[] encodedText = new byte[ length ];
+            buffer.get( encodedText );
+            texts[ textIndex ] = toString( encodedText, 0, length );
+        }
+        for ( int index = 0; index < size; index++ ) {
+            if ( textIndexes[ index ] < PointArray.NO_TEXT || textIndexes[ index ] >= textCount ) {
+                throw new IllegalArgumentException( "Invalid text index " + textIndexes[ index ] + " at " + index );
+            }
+        }
+        return new PointArray( xs, ys, textIndexes, texts );
+    }
+
+    private static byte[] toBytes( String text ) {
+        try {
+            return text.getBytes( CHARSET );
+        } catch ( UnsupportedEncodingException e ) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static String toString( byte[] bytes, int offset, int length ) {
+        try {
+            return new String( bytes, offset, length, CHARSET );
+        } catch ( UnsupportedEncodingException e ) {
+            // UTF-8 is always supported.
+            throw new IllegalStateException( e );
+        }
+    }
+}
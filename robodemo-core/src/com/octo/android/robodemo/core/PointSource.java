@@ -0,0 +1,32 @@
+package com.octo.android.robodemo.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A sequence of labeled points that is read in pages, so that very long demos don't need to hold all their points in
+ * memory.
+ * 
+ * @author sni
+ * 
+ */
+public interface PointSource extends Closeable {
+
+    /**
+     * @return the total number of points of this source.
+     */
+    int size();
+
+    /**
+     * Reads a page of points. This method can be called from any thread.
+     * 
+     * @param from
+     *            the index of the first point to read.
+     * @param count
+     *            the number of points to read, points beyond the end of the source are not read.
+     * @return the points read, their texts are the only texts of the returned array.
+     * @throws IOException
+     *             if the points could not be read.
+     */
+    PointArray read( int from, int count ) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.octo.android.robodemo.core;
+
+/**
+ * Position math shared by all ways of creating points.
+ * 
+ * @author sni
+ * 
+ */
+public final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * Computes a coordinate relative to a view.
+     * 
+     * @param viewOrigin
+     *            the coordinate of the view, on screen.
+     * @param viewSize
+     *            the size of the view.
+     * @param percent
+     *            the percent of the size of the view, from 0 to 100.
+     * @return the coordinate, on screen.
+     */
+    public static int getLocationInView( int viewOrigin, int viewSize, float percent ) {
+        return viewOrigin + Math.round( percent * viewSize / 100 );
+    }
+
+    /**
+     * Computes a coordinate relative to the screen.
+     * 
+     * @param screenSize
+     *            the size of the screen.
+     * @param ratio
+     *            the ratio of the size of the screen, from 0 to 1.
+     * @return the coordinate, on screen.
+     */
+    public static int getLocationInScreen( int screenSize, float ratio ) {
+        return (int) ( screenSize * ratio );
+    }
+}
@@ -0,0 +1,200 @@
+package com.octo.android.robodemo.core;
+
+/**
+ * A uniform grid that indexes rectangles by an integer id. Each rectangle is registered in all the cells it overlaps,
+ * so that looking for the rectangles at a given location only needs to scan one cell instead of all rectangles.
+ * 
+ * Rectangles lying outside of the area covered by the grid are registered in its border cells. Rectangles are given as
+ * left, top, right and bottom coordinates, right and bottom being exclusive.
+ * 
+ * @author sni
+ * 
+ */
+public final class SpatialGrid {
+
+    private static final int INITIAL_CELL_CAPACITY = 4;
+    private static final int INITIAL_RECT_CAPACITY = 16;
+
+    private final int cellSize;
+    private final int columnCount;
+    private final int rowCount;
+    private final int[][] cellIds;
+    private final int[] cellIdCounts;
+
+    // rects of all ids, 4 ints per id : left, top, right, bottom.
+    private int[] rects = new int[ INITIAL_RECT_CAPACITY * 4 ];
+    private int rectCount = 0;
+
+    // stamps used to visit each id only once during a query, even if it is registered in many cells.
+    private int[] visitStamps = new int[ INITIAL_RECT_CAPACITY ];
+    private int currentStamp = 0;
+
+    /**
+     * Creates a grid covering a given area.
+     * 
+     * @param width
+     *            the width of the area covered by the grid.
+     * @param height
+     *            the height of the area covered by the grid.
+     * @param cellSize
+     *            the size of cells (in px).
+     */
+    public SpatialGrid( int width, int height, int cellSize ) {
+        this.cellSize = Math.max( 1, cellSize );
+        this.columnCount = Math.max( 1, ( width + this.cellSize - 1 ) / this.cellSize );
+        this.rowCount = Math.max( 1, ( height + this.cellSize - 1 ) / this.cellSize );
+        this.cellIds = new int[ columnCount * rowCount ][];
+        this.cellIdCounts = new int[ columnCount * rowCount ];
+    }
+
+    /**
+     * Removes all rectangles from this grid.
+     */
+    public void clear() {
+        for ( int index = 0; index < cellIdCounts.length; index++ ) {
+            cellIdCounts[ index ] = 0;
+        }
+        rectCount = 0;
+    }
+
+    /**
+     * Adds a rectangle to this grid. Ids must be added in increasing order, starting from 0.
+     * 
+     * @param id
+     *            the id of the rectangle.
+     * @param left
+     *            the left side of the rectangle.
+     * @param top
+     *            the top side of the rectangle.
+     * @param right
+     *            the right side of the rectangle.
+     * @param bottom
+     *            the bottom side of the rectangle.
+     */
+    public void insert( int id, int left, int top, int right, int bottom ) {
+        if ( id != rectCount ) {
+            throw new IllegalArgumentException( "Ids must be inserted in sequence. Expected " + rectCount + " but was " + id );
+        }
+        if ( rects.length < ( rectCount + 1 ) * 4 ) {
+            int[] newRects = new int[ rects.length * 2 ];
+            System.arraycopy( rects, 0, newRects, 0, rects.length );
+            rects = newRects;
+            int[] newVisitStamps = new int[ visitStamps.length * 2 ];
+            System.arraycopy( visitStamps, 0, newVisitStamps, 0, visitStamps.length );
+            visitStamps = newVisitStamps;
+        }
+        rects[ id * 4 ] = left;
+        rects[ id * 4 + 1 ] = top;
+        rects[ id * 4 + 2 ] = right;
+        rects[ id * 4 + 3 ] = bottom;
+        rectCount++;
+
+        int lastColumn = getColumn( right );
+        int lastRow = getRow( bottom );
+        for ( int row = getRow( top ); row <= lastRow; row++ ) {
+            for ( int column = getColumn( left ); column <= lastColumn; column++ ) {
+                addToCell( row * columnCount + column, id );
+            }
+        }
+    }
+
+    /**
+     * Gives the highest id, in a given range of ids, of the rectangles that contain a given location.
+     * 
+     * @param x
+     *            the x coordinate of the location.
+     * @param y
+     *            the y coordinate of the location.
+     * @param minId
+     *            the lowest id to consider.
+     * @param maxId
+     *            the highest id to consider.
+     * @return the highest id of a rectangle containing (x,y), or -1 if there is none.
+     */
+    public int findHighestIdAt( int x, int y, int minId, int maxId ) {
+        int cell = getRow( y ) * columnCount + getColumn( x );
+        int[] ids = cellIds[ cell ];
+        int result = -1;
+        for ( int index = 0; index < cellIdCounts[ cell ]; index++ ) {
+            int id = ids[ index ];
+            if ( id > result && id >= minId && id <= maxId && contains( id, x, y ) ) {
+                result = id;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the total area of the intersections between a given rectangle and the rectangles of this grid.
+     * 
+     * @param left
+     *            the left side of the rectangle to test.
+     * @param top
+     *            the top side of the rectangle to test.
+     * @param right
+     *            the right side of the rectangle to test.
+     * @param bottom
+     *            the bottom side of the rectangle to test.
+     * @param excludedId
+     *            the id of a rectangle to ignore, or -1.
+     * @return the sum of the areas of the intersections of the rectangle with all rectangles of this grid but
+     *         excludedId.
+     */
+    public long getIntersectionArea( int left, int top, int right, int bottom, int excludedId ) {
+        currentStamp++;
+        long area = 0;
+        int lastColumn = getColumn( right );
+        int lastRow = getRow( bottom );
+        for ( int row = getRow( top ); row <= lastRow; row++ ) {
+            for ( int column = getColumn( left ); column <= lastColumn; column++ ) {
+                int cell = row * columnCount + column;
+                int[] ids = cellIds[ cell ];
+                for ( int index = 0; index < cellIdCounts[ cell ]; index++ ) {
+                    int id = ids[ index ];
+                    if ( id != excludedId && visitStamps[ id ] != currentStamp ) {
+                        visitStamps[ id ] = currentStamp;
+                        area += getIntersectionAreaWith( id, left, top, right, bottom );
+                    }
+                }
+            }
+        }
+        return area;
+    }
+
+    private long getIntersectionAreaWith( int id, int left, int top, int right, int bottom ) {
+        int width = Math.min( right, rects[ id * 4 + 2 ] ) - Math.max( left, rects[ id * 4 ] );
+        int height = Math.min( bottom, rects[ id * 4 + 3 ] ) - Math.max( top, rects[ id * 4 + 1 ] );
+        if ( width <= 0 || height <= 0 ) {
+            return 0;
+        }
+        return (long) width * height;
+    }
+
+    private boolean contains( int id, int x, int y ) {
+        return x >= rects[ id * 4 ] && x < rects[ id * 4 + 2 ] && y >= rects[ id * 4 + 1 ] && y < rects[ id * 4 + 3 ];
+    }
+
+    private void addToCell( int cell, int id ) {
+        int[] ids = cellIds[ cell ];
+        int count = cellIdCounts[ cell ];
+        if ( ids == null ) {
+            ids = new int[ INITIAL_CELL_CAPACITY ];
+            cellIds[ cell ] = ids;
+        } else if ( count == ids.length ) {
+            int[] newIds = new int[ count * 2 ];
+            System.arraycopy( ids, 0, newIds, 0, count );
+            ids = newIds;
+            cellIds[ cell ] = ids;
+        }
+        ids[ count ] = id;
+        cellIdCounts[ cell ] = count + 1;
+    }
+
+    private int getColumn( int x ) {
+        return Math.max( 0, Math.min( columnCount - 1, x / cellSize ) );
+    }
+
+    private int getRow( int y ) {
+        return Math.max( 0, Math.min( rowCount - 1, y / cellSize ) );
+    }
+}
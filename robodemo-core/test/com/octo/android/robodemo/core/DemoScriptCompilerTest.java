@@ -0,0 +1,84 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class DemoScriptCompilerTest {
+
+    @Test
+    public void compiledDemosCanBeRead() throws IOException {
+        DemoScript demoScript = compile( "# comment\n" //
+                + "demo main-activity\n" //
+                + "delay 2000\n" //
+                + "\n" //
+                + "point 95% 5% \"Refresh \\\"the\\\" list\\nnow\"\n" //
+                + "point 120px 300px \"Some text\"\n" //
+                + "demo details\n" //
+                + "anchor @id/button_clear 50% 0% @string/text_step_1\n" );
+
+        assertEquals( 2, demoScript.getDemoCount() );
+        int demo = demoScript.findDemo( "main-activity" );
+        assertEquals( "main-activity", demoScript.getDemoName( demo ) );
+        assertEquals( 2000, demoScript.getDelayBetweenPoints( demo ) );
+        assertEquals( 2, demoScript.getPointCount( demo ) );
+
+        assertEquals( DemoScript.POINT_IN_SCREEN, demoScript.getPointKind( demo, 0 ) );
+        assertEquals( 95 * DemoScript.PERCENT_SCALE, demoScript.getPointX( demo, 0 ) );
+        assertEquals( 5 * DemoScript.PERCENT_SCALE, demoScript.getPointY( demo, 0 ) );
+        assertEquals( "Refresh \"the\" list\nnow", demoScript.getLabel( demo, 0 ) );
+        assertFalse( demoScript.isLabelResource( demo, 0 ) );
+        assertNull( demoScript.getAnchorName( demo, 0 ) );
+
+        assertEquals( DemoScript.POINT_IN_PIXELS, demoScript.getPointKind( demo, 1 ) );
+        assertEquals( 120, demoScript.getPointX( demo, 1 ) );
+        assertEquals( 300, demoScript.getPointY( demo, 1 ) );
+
+        int detailsDemo = demoScript.findDemo( "details" );
+        assertEquals( 1, demoScript.getPointCount( detailsDemo ) );
+        assertEquals( DemoScript.POINT_ANCHORED, demoScript.getPointKind( detailsDemo, 0 ) );
+        assertEquals( "button_clear", demoScript.getAnchorName( detailsDemo, 0 ) );
+        assertEquals( 50 * DemoScript.PERCENT_SCALE, demoScript.getPointX( detailsDemo, 0 ) );
+        assertEquals( 0, demoScript.getPointY( detailsDemo, 0 ) );
+        assertEquals( "text_step_1", demoScript.getLabel( detailsDemo, 0 ) );
+        assertTrue( demoScript.isLabelResource( detailsDemo, 0 ) );
+
+        assertEquals( -1, demoScript.findDemo( "unknown" ) );
+    }
+
+    @Test
+    public void errorsGiveSourceAndLine() throws IOException {
+        assertError( "demo a\npoint 5% 5px \"text\"\n", "test.demo:2:" );
+        assertError( "point 5% 5% \"text\"\n", "test.demo:1:" );
+        assertError( "demo a\n\ndemo a\n", "test.demo:3:" );
+        assertError( "demo a\nanchor button 5% 5% \"text\"\n", "test.demo:2:" );
+        assertError( "demo a\nunknown\n", "test.demo:2:" );
+    }
+
+    private static DemoScript compile( String source ) throws IOException {
+        DemoScriptCompiler compiler = new DemoScriptCompiler();
+        compiler.compile( new StringReader( source ), "test.demo" );
+        return DemoScript.read( ByteBuffer.wrap( compiler.toByteArray() ) );
+    }
+
+    private static void assertError( String source, String expectedPrefix ) throws IOException {
+        try {
+            compile( source );
+            fail( "Expected an error for " + source );
+        } catch ( IllegalArgumentException e ) {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( expectedPrefix ) );
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class EncodedPointSourceTest {
+
+    private static final int PREFIX_LENGTH = 7;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile( "points", ".bin" );
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void pagesHoldTheirPointsAndTexts() throws IOException {
+        PointArray points = PointCodecTest.createPoints();
+        write( new byte[ 0 ], PointCodec.encode( points ) );
+
+        EncodedPointSource pointSource = new EncodedPointSource( file );
+        try {
+            assertEquals( points.size(), pointSource.size() );
+            for ( int from = 0; from < points.size(); from += 3 ) {
+                PointArray page = pointSource.read( from, 3 );
+                assertEquals( Math.min( 3, points.size() - from ), page.size() );
+                for ( int index = 0; index < page.size(); index++ ) {
+                    assertEquals( points.getX( from + index ), page.getX( index ) );
+                    assertEquals( points.getY( from + index ), page.getY( index ) );
+                    assertEquals( points.getText( from + index ), page.getText( index ) );
+                }
+            }
+        } finally {
+            pointSource.close();
+        }
+    }
+
+    @Test
+    public void pageTextsAreIndexedInPage() throws IOException {
+        PointArray points = new PointArray( new int[] { 1, 2, 3 }, new int[] { 4, 5, 6 }, new String[] { "a", "b", "b" } );
+        write( new byte[ 0 ], PointCodec.encode( points ) );
+
+        EncodedPointSource pointSource = new EncodedPointSource( file );
+        try {
+            PointArray page = pointSource.read( 1, 2 );
+            assertEquals( 1, page.getTextCount() );
+            assertEquals( "b", page.getTextAt( 0 ) );
+            assertEquals( 0, page.getTextIndex( 0 ) );
+            assertEquals( 0, page.getTextIndex( 1 ) );
+        } finally {
+            pointSource.close();
+        }
+    }
+
+    @Test
+    public void pointsCanStartAnywhereInFile() throws IOException {
+        PointArray points = PointCodecTest.createPoints();
+        write( new byte[ PREFIX_LENGTH ], PointCodec.encode( points ) );
+
+        EncodedPointSource pointSource = new EncodedPointSource( new RandomAccessFile( file, "r" ).getChannel(), PREFIX_LENGTH );
+        try {
+            PointCodecTest.assertSamePoints( points, pointSource.read( 0, points.size() ) );
+        } finally {
+            pointSource.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        write( new byte[ 64 ], new byte[ 0 ] );
+        new EncodedPointSource( file );
+    }
+
+    private void write( byte[] prefix, byte[] bytes ) throws IOException {
+        FileOutputStream outputStream = new FileOutputStream( file );
+        try {
+            outputStream.write( prefix );
+            outputStream.write( bytes );
+        } finally {
+            outputStream.close();
+        }
+    }
+}
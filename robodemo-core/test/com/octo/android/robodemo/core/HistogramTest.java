@@ -0,0 +1,76 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class HistogramTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void emptyHistogramGivesZeros() {
+        Histogram histogram = new Histogram();
+
+        assertEquals( 0, histogram.getCount() );
+        assertEquals( 0, histogram.getMin() );
+        assertEquals( 0, histogram.getMax() );
+        assertEquals( 0, histogram.getMean(), DELTA );
+        assertEquals( 0, histogram.getPercentile( 50 ) );
+    }
+
+    @Test
+    public void statisticsAreExact() {
+        Histogram histogram = new Histogram();
+        histogram.record( 10 );
+        histogram.record( 20 );
+        histogram.record( 60 );
+
+        assertEquals( 3, histogram.getCount() );
+        assertEquals( 90, histogram.getSum() );
+        assertEquals( 10, histogram.getMin() );
+        assertEquals( 60, histogram.getMax() );
+        assertEquals( 30, histogram.getMean(), DELTA );
+    }
+
+    @Test
+    public void percentilesAreWithinFactorOfTwo() {
+        Histogram histogram = new Histogram();
+        for ( int value = 1; value <= 1000; value++ ) {
+            histogram.record( value );
+        }
+
+        long median = histogram.getPercentile( 50 );
+        assertTrue( median >= 500 && median < 1000 );
+        long p99 = histogram.getPercentile( 99 );
+        assertTrue( p99 >= 990 && p99 <= 1000 );
+        assertEquals( 1000, histogram.getPercentile( 100 ) );
+        assertEquals( 1, histogram.getPercentile( 0 ) );
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        Histogram histogram = new Histogram();
+        histogram.record( 5 );
+        Histogram copy = new Histogram( histogram );
+        histogram.record( 7 );
+
+        assertEquals( 1, copy.getCount() );
+        assertEquals( 5, copy.getMax() );
+    }
+
+    @Test
+    public void resetRemovesAllValues() {
+        Histogram histogram = new Histogram();
+        histogram.record( 5 );
+        histogram.reset();
+
+        assertEquals( 0, histogram.getCount() );
+        assertEquals( 0, histogram.getPercentile( 90 ) );
+    }
+}
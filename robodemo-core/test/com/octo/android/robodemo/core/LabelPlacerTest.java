@@ -0,0 +1,94 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class LabelPlacerTest {
+
+    private static final int SCREEN_WIDTH = 480;
+    private static final int SCREEN_HEIGHT = 800;
+    private static final int CELL_SIZE = 48;
+    private static final int DRAWABLE_SIZE = 40;
+    private static final int MARGIN = 10;
+    private static final int PADDING = 4;
+
+    @Test
+    public void labelIsPlacedInQuadrantTowardCenterOfScreen() {
+        int[] pointXs = { 100, 400 };
+        int[] pointYs = { 100, 700 };
+        Placement placement = place( pointXs, pointYs, 80, 30 );
+
+        // top left point : label below and on the right.
+        assertEquals( 100 + MARGIN, placement.textXs[ 0 ] );
+        assertEquals( 100 + MARGIN, placement.textYs[ 0 ] );
+        // bottom right point : label above and on the left.
+        assertEquals( 400 - MARGIN - 80, placement.textXs[ 1 ] );
+        assertEquals( 700 - MARGIN - 30, placement.textYs[ 1 ] );
+    }
+
+    @Test
+    public void labelsOfClosePointsDontOverlap() {
+        int[] pointXs = { 200, 204, 208, 212 };
+        int[] pointYs = { 300, 302, 304, 306 };
+        Placement placement = place( pointXs, pointYs, 80, 30 );
+
+        for ( int first = 0; first < pointXs.length; first++ ) {
+            for ( int second = first + 1; second < pointXs.length; second++ ) {
+                assertFalse( first + " overlaps " + second, intersects( placement, first, second, 80, 30 ) );
+            }
+        }
+    }
+
+    @Test
+    public void labelsStayOnScreenWhenPossible() {
+        int[] pointXs = { 5, SCREEN_WIDTH - 5 };
+        int[] pointYs = { 5, SCREEN_HEIGHT - 5 };
+        Placement placement = place( pointXs, pointYs, 80, 30 );
+
+        for ( int position = 0; position < pointXs.length; position++ ) {
+            assertTrue( placement.textXs[ position ] >= 0 && placement.textXs[ position ] + 80 <= SCREEN_WIDTH );
+            assertTrue( placement.textYs[ position ] >= 0 && placement.textYs[ position ] + 30 <= SCREEN_HEIGHT );
+        }
+    }
+
+    private static Placement place( int[] pointXs, int[] pointYs, int labelWidth, int labelHeight ) {
+        int count = pointXs.length;
+        int[] drawableBounds = new int[ count * 4 ];
+        int[] labelWidths = new int[ count ];
+        int[] labelHeights = new int[ count ];
+        for ( int position = 0; position < count; position++ ) {
+            drawableBounds[ position * 4 ] = pointXs[ position ] - DRAWABLE_SIZE / 2;
+            drawableBounds[ position * 4 + 1 ] = pointYs[ position ] - DRAWABLE_SIZE / 2;
+            drawableBounds[ position * 4 + 2 ] = pointXs[ position ] + DRAWABLE_SIZE / 2;
+            drawableBounds[ position * 4 + 3 ] = pointYs[ position ] + DRAWABLE_SIZE / 2;
+            labelWidths[ position ] = labelWidth;
+            labelHeights[ position ] = labelHeight;
+        }
+        Placement placement = new Placement( count );
+        new LabelPlacer( SCREEN_WIDTH, SCREEN_HEIGHT, CELL_SIZE ).placeLabels( count, pointXs, pointYs, drawableBounds, labelWidths, labelHeights,
+                MARGIN, MARGIN, PADDING, placement.textXs, placement.textYs );
+        return placement;
+    }
+
+    private static boolean intersects( Placement placement, int first, int second, int width, int height ) {
+        return placement.textXs[ first ] < placement.textXs[ second ] + width && placement.textXs[ second ] < placement.textXs[ first ] + width
+                && placement.textYs[ first ] < placement.textYs[ second ] + height && placement.textYs[ second ] < placement.textYs[ first ] + height;
+    }
+
+    private static final class Placement {
+        private final int[] textXs;
+        private final int[] textYs;
+
+        Placement( int count ) {
+            textXs = new int[ count ];
+            textYs = new int[ count ];
+        }
+    }
+}
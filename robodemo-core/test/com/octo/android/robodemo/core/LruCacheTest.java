@@ -0,0 +1,86 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class LruCacheTest {
+
+    @Test
+    public void leastRecentlyUsedValueIsEvictedFirst() {
+        LruCache< String, String > cache = new LruCache< String, String >( 2 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        cache.get( "a" );
+        cache.put( "c", "C" );
+
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( "C", cache.get( "c" ) );
+        assertEquals( 2, cache.size() );
+    }
+
+    @Test
+    public void sizeOfBoundsCache() {
+        LruCache< String, String > cache = new LruCache< String, String >( 10 ) {
+            @Override
+            protected int sizeOf( String key, String value ) {
+                return value.length();
+            }
+        };
+        cache.put( "a", "12345" );
+        cache.put( "b", "1234" );
+        assertEquals( 9, cache.size() );
+        cache.put( "c", "123" );
+
+        assertNull( cache.get( "a" ) );
+        assertEquals( 7, cache.size() );
+    }
+
+    @Test
+    public void replacingValueUpdatesSize() {
+        LruCache< String, String > cache = new LruCache< String, String >( 10 ) {
+            @Override
+            protected int sizeOf( String key, String value ) {
+                return value.length();
+            }
+        };
+        cache.put( "a", "12345" );
+        assertEquals( "12345", cache.put( "a", "12" ) );
+        assertEquals( 2, cache.size() );
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        LruCache< String, String > cache = new LruCache< String, String >( 2 );
+        cache.put( "a", "A" );
+        cache.get( "a" );
+        cache.get( "a" );
+        cache.get( "b" );
+
+        assertEquals( 2, cache.getHitCount() );
+        assertEquals( 1, cache.getMissCount() );
+    }
+
+    @Test
+    public void evictAllKeepsCounters() {
+        LruCache< String, String > cache = new LruCache< String, String >( 2 );
+        cache.put( "a", "A" );
+        cache.get( "a" );
+        cache.evictAll();
+
+        assertEquals( 0, cache.size() );
+        assertNull( cache.get( "a" ) );
+        assertEquals( 1, cache.getHitCount() );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxSizeMustBePositive() {
+        new LruCache< String, String >( 0 );
+    }
+}
@@ -0,0 +1,73 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class PointCodecTest {
+
+    @Test
+    public void decodeRestoresEncodedPoints() {
+        PointArray points = createPoints();
+        assertSamePoints( points, PointCodec.decode( PointCodec.encode( points ) ) );
+    }
+
+    @Test
+    public void decodeReadsDirectBuffersFromTheirPosition() {
+        PointArray points = createPoints();
+        byte[] bytes = PointCodec.encode( points );
+        ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length + 3 );
+        buffer.put( new byte[] { 1, 2, 3 } ).put( bytes ).flip();
+        buffer.get( new byte[ 3 ] );
+
+        assertSamePoints( points, PointCodec.decode( buffer ) );
+        assertEquals( 0, buffer.remaining() );
+    }
+
+    @Test
+    public void decodeReadsSlicesOfHeapBuffers() {
+        PointArray points = createPoints();
+        byte[] bytes = PointCodec.encode( points );
+        byte[] paddedBytes = new byte[ bytes.length + 5 ];
+        System.arraycopy( bytes, 0, paddedBytes, 5, bytes.length );
+        ByteBuffer buffer = ByteBuffer.wrap( paddedBytes );
+        buffer.position( 5 );
+
+        assertSamePoints( points, PointCodec.decode( buffer.slice() ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsOtherData() {
+        PointCodec.decode( new byte[ 32 ] );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsTruncatedData() {
+        byte[] bytes = PointCodec.encode( createPoints() );
+        byte[] truncatedBytes = new byte[ bytes.length - 2 ];
+        System.arraycopy( bytes, 0, truncatedBytes, 0, truncatedBytes.length );
+        PointCodec.decode( truncatedBytes );
+    }
+
+    static PointArray createPoints() {
+        int[] xs = { 10, -20, 30, 40 };
+        int[] ys = { 15, 25, -35, 45 };
+        String[] texts = { "first", null, "first", "été ✓" };
+        return new PointArray( xs, ys, texts );
+    }
+
+    static void assertSamePoints( PointArray expected, PointArray actual ) {
+        assertEquals( expected.size(), actual.size() );
+        for ( int index = 0; index < expected.size(); index++ ) {
+            assertEquals( expected.getX( index ), actual.getX( index ) );
+            assertEquals( expected.getY( index ), actual.getY( index ) );
+            assertEquals( expected.getText( index ), actual.getText( index ) );
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.octo.android.robodemo.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author sni
+ * 
+ */
+public class SpatialGridTest {
+
+    @Test
+    public void findHighestIdAtReturnsTopmostRectContainingLocation() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 0, 0, 0, 50, 50 );
+        grid.insert( 1, 20, 20, 60, 60 );
+        grid.insert( 2, 80, 80, 90, 90 );
+
+        assertEquals( 0, grid.findHighestIdAt( 5, 5, 0, 2 ) );
+        assertEquals( 1, grid.findHighestIdAt( 30, 30, 0, 2 ) );
+        assertEquals( 2, grid.findHighestIdAt( 85, 85, 0, 2 ) );
+        assertEquals( -1, grid.findHighestIdAt( 70, 70, 0, 2 ) );
+    }
+
+    @Test
+    public void findHighestIdAtOnlyConsidersIdsInRange() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 0, 0, 0, 50, 50 );
+        grid.insert( 1, 20, 20, 60, 60 );
+
+        assertEquals( 0, grid.findHighestIdAt( 30, 30, 0, 0 ) );
+        assertEquals( 1, grid.findHighestIdAt( 30, 30, 1, 1 ) );
+        assertEquals( -1, grid.findHighestIdAt( 5, 5, 1, 1 ) );
+    }
+
+    @Test
+    public void rightAndBottomSidesAreExclusive() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 0, 10, 10, 20, 20 );
+
+        assertEquals( 0, grid.findHighestIdAt( 10, 10, 0, 0 ) );
+        assertEquals( -1, grid.findHighestIdAt( 20, 15, 0, 0 ) );
+        assertEquals( -1, grid.findHighestIdAt( 15, 20, 0, 0 ) );
+    }
+
+    @Test
+    public void rectsOutsideOfGridAreFoundInBorderCells() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 0, -30, -30, 5, 5 );
+        grid.insert( 1, 95, 95, 150, 150 );
+
+        assertEquals( 0, grid.findHighestIdAt( -10, -10, 0, 1 ) );
+        assertEquals( 1, grid.findHighestIdAt( 120, 120, 0, 1 ) );
+    }
+
+    @Test
+    public void intersectionAreaSumsOverlapsOnceAndSkipsExcludedId() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        // spans many cells, must be counted once.
+        grid.insert( 0, 0, 0, 40, 40 );
+        grid.insert( 1, 30, 30, 50, 50 );
+
+        assertEquals( 20 * 20 + 10 * 10, grid.getIntersectionArea( 20, 20, 40, 40, -1 ) );
+        assertEquals( 10 * 10, grid.getIntersectionArea( 20, 20, 40, 40, 0 ) );
+        assertEquals( 0, grid.getIntersectionArea( 60, 60, 90, 90, -1 ) );
+    }
+
+    @Test
+    public void manyIdsCanBeInsertedInOneCell() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 100 );
+        for ( int id = 0; id < 100; id++ ) {
+            grid.insert( id, 0, 0, 10, 10 );
+        }
+        assertEquals( 99, grid.findHighestIdAt( 5, 5, 0, 99 ) );
+        assertEquals( 100L * 10 * 10, grid.getIntersectionArea( 0, 0, 10, 10, -1 ) );
+    }
+
+    @Test
+    public void clearRemovesAllRects() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 0, 0, 0, 50, 50 );
+        grid.clear();
+
+        assertEquals( -1, grid.findHighestIdAt( 5, 5, 0, 0 ) );
+        grid.insert( 0, 60, 60, 70, 70 );
+        assertEquals( 0, grid.findHighestIdAt( 65, 65, 0, 0 ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void idsMustBeInsertedInSequence() {
+        SpatialGrid grid = new SpatialGrid( 100, 100, 10 );
+        grid.insert( 1, 0, 0, 10, 10 );
+    }
+}
@@ -0,0 +1,173 @@
+package com.octo.android.robodemo;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * A canvas of a given size that counts drawing operations instead of rendering them, so that tests measure the
+ * rendering code of RoboDemo and not the graphics stack it runs on.
+ * 
+ * @author sni
+ * 
+ */
+class CountingCanvas extends Canvas {
+
+    private final int width;
+    private final int height;
+    private int drawCount;
+    private int saveCount;
+    private int saveCallCount;
+
+    CountingCanvas( int width, int height ) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the number of draw operations since this canvas has been created or reset.
+     */
+    int getDrawCount() {
+        return drawCount;
+    }
+
+    /**
+     * @return the number of calls to save since this canvas has been created or reset.
+     */
+    int getSaveCallCount() {
+        return saveCallCount;
+    }
+
+    void reset() {
+        drawCount = 0;
+        saveCallCount = 0;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean getClipBounds( Rect bounds ) {
+        bounds.set( 0, 0, width, height );
+        return true;
+    }
+
+    @Override
+    public boolean quickReject( float left, float top, float right, float bottom, EdgeType type ) {
+        return right <= 0 || bottom <= 0 || left >= width || top >= height;
+    }
+
+    @Override
+    public boolean quickReject( RectF rect, EdgeType type ) {
+        return quickReject( rect.left, rect.top, rect.right, rect.bottom, type );
+    }
+
+    @Override
+    public int save() {
+        saveCallCount++;
+        return ++saveCount;
+    }
+
+    @Override
+    public int save( int saveFlags ) {
+        saveCallCount++;
+        return ++saveCount;
+    }
+
+    @Override
+    public void restore() {
+        saveCount--;
+    }
+
+    @Override
+    public int getSaveCount() {
+        return saveCount;
+    }
+
+    @Override
+    public void translate( float dx, float dy ) {
+    }
+
+    @Override
+    public void scale( float sx, float sy ) {
+    }
+
+    @Override
+    public void drawText( char[] text, int index, int count, float x, float y, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawText( String text, float x, float y, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawText( String text, int start, int end, float x, float y, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawText( CharSequence text, int start, int end, float x, float y, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawTextRun( char[] text, int index, int count, int contextIndex, int contextCount, float x, float y, boolean isRtl, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawTextRun( CharSequence text, int start, int end, int contextStart, int contextEnd, float x, float y, boolean isRtl, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRect( float left, float top, float right, float bottom, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRect( Rect rect, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRect( RectF rect, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawRoundRect( RectF rect, float rx, float ry, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawCircle( float cx, float cy, float radius, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, float left, float top, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, Rect src, Rect dst, Paint paint ) {
+        drawCount++;
+    }
+
+    @Override
+    public void drawBitmap( Bitmap bitmap, Rect src, RectF dst, Paint paint ) {
+        drawCount++;
+    }
+}
@@ -0,0 +1,57 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.text.TextPaint;
+
+/**
+ * Checks that the count of points of an adapter matches its cached layouts.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class DefaultDrawViewAdapterTest {
+
+    private static final int POINTS_COUNT = 5;
+
+    @Test
+    public void pointsAddedToListAreCountedOnceNotified() {
+        ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( POINTS_COUNT );
+        DefaultDrawViewAdapter drawViewAdapter = new DefaultDrawViewAdapter( RuntimeEnvironment.application, TestDemos.createMarker(),
+                new TextPaint(), listPoints );
+        drawViewAdapter.getTextLayoutAt( 0 );
+
+        listPoints.add( new LabeledPoint( 10, 10, "Added" ) );
+        assertEquals( POINTS_COUNT, drawViewAdapter.getPointsCount() );
+        assertNotNull( drawViewAdapter.getTextLayoutAt( drawViewAdapter.getPointsCount() - 1 ) );
+
+        drawViewAdapter.notifyDataSetChanged();
+        assertEquals( POINTS_COUNT + 1, drawViewAdapter.getPointsCount() );
+        assertEquals( "Added", drawViewAdapter.getTextLayoutAt( POINTS_COUNT ).getText().toString() );
+    }
+
+    @Test
+    public void pointsRemovedFromListAreCountedOnceNotified() {
+        ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( POINTS_COUNT );
+        DefaultDrawViewAdapter drawViewAdapter = new DefaultDrawViewAdapter( RuntimeEnvironment.application, TestDemos.createMarker(),
+                new TextPaint(), listPoints );
+        drawViewAdapter.getTextLayoutAt( 0 );
+
+        listPoints.clear();
+        assertEquals( POINTS_COUNT, drawViewAdapter.getPointsCount() );
+
+        drawViewAdapter.notifyDataSetChanged();
+        assertEquals( 0, drawViewAdapter.getPointsCount() );
+    }
+}
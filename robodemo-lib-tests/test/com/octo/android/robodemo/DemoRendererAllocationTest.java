@@ -0,0 +1,104 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.graphics.Paint;
+
+/**
+ * Checks that drawing a frame of a demo doesn't allocate once the first frame has been drawn.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class DemoRendererAllocationTest {
+
+    private static final int POINTS_COUNT = 30;
+    private static final int FRAMES_COUNT = 10;
+    private static final int WARM_UP_FRAMES_COUNT = 3;
+    private static final int MIN_OBJECT_SIZE = 16;
+
+    private DefaultDrawViewAdapter drawViewAdapter;
+    private DemoRenderer demoRenderer;
+    private CountingCanvas canvas;
+
+    @Before
+    public void setUp() {
+        drawViewAdapter = TestDemos.createAdapter( RuntimeEnvironment.application, POINTS_COUNT );
+        demoRenderer = new DemoRenderer( RuntimeEnvironment.application, drawViewAdapter );
+        canvas = new CountingCanvas( TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+    }
+
+    @Test
+    public void adapterGettersDontAllocateAfterFirstFrame() {
+        demoRenderer.draw( canvas, POINTS_COUNT - 1 );
+
+        long allocatedBytes = TestDemos.getAllocatedBytes();
+        for ( int frame = 0; frame < FRAMES_COUNT; frame++ ) {
+            for ( int position = 0; position < drawViewAdapter.getPointsCount(); position++ ) {
+                drawViewAdapter.getTextPointAt( position );
+                drawViewAdapter.getTextLayoutAt( position );
+                drawViewAdapter.getDrawableAt( position );
+            }
+        }
+        assertAllocatesNothingPerFrame( TestDemos.getAllocatedBytes() - allocatedBytes, FRAMES_COUNT );
+    }
+
+    @Test
+    public void framesDontAllocateAfterFirstFrame() {
+        assertFramesDontAllocate();
+    }
+
+    @Test
+    public void framesDontAllocateAfterFirstFrameWithUnderTextPaint() {
+        Paint underTextPaint = new Paint();
+        underTextPaint.setColor( 0x80000000 );
+        demoRenderer.setUnderTextPaint( underTextPaint );
+        assertFramesDontAllocate();
+    }
+
+    @Test
+    public void framesDontAllocateAfterFirstFrameWithoutClearXfermode() {
+        demoRenderer.setIsClearPorterDuffXfermodeEnabled( false );
+        assertFramesDontAllocate();
+    }
+
+    @Test
+    public void framesDontAllocateAfterFirstFrameOnePointAtATime() {
+        demoRenderer.setDrawingOnePointAtATime( true );
+        assertFramesDontAllocate();
+    }
+
+    private void assertFramesDontAllocate() {
+        for ( int frame = 0; frame < WARM_UP_FRAMES_COUNT; frame++ ) {
+            for ( int step = 0; step < POINTS_COUNT; step++ ) {
+                demoRenderer.draw( canvas, step );
+            }
+        }
+
+        long allocatedBytes = TestDemos.getAllocatedBytes();
+        for ( int frame = 0; frame < FRAMES_COUNT; frame++ ) {
+            for ( int step = 0; step < POINTS_COUNT; step++ ) {
+                demoRenderer.draw( canvas, step );
+            }
+        }
+        assertAllocatesNothingPerFrame( TestDemos.getAllocatedBytes() - allocatedBytes, FRAMES_COUNT * POINTS_COUNT );
+        assertTrue( canvas.getDrawCount() > 0 );
+    }
+
+    /**
+     * Any allocation made by every frame would weigh at least the size of the smallest object. Less than that per frame
+     * is left to the JVM itself, which can allocate once in a while for its own needs.
+     */
+    private static void assertAllocatesNothingPerFrame( long allocatedBytes, int framesCount ) {
+        assertTrue( allocatedBytes + " bytes allocated by " + framesCount + " frames", allocatedBytes < framesCount * MIN_OBJECT_SIZE );
+    }
+}
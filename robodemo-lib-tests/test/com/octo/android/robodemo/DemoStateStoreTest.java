@@ -0,0 +1,58 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Checks that the state of demos can be queried from the UI thread without waiting for it to be loaded.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE)
+public class DemoStateStoreTest {
+
+    private static final long LOAD_TIMEOUT_MILLIS = 5000;
+
+    @Test
+    public void stateIsGivenToListenerOnceLoaded() throws InterruptedException {
+        DemoStateStore demoStateStore = DemoStateStore.getInstance( RuntimeEnvironment.application );
+        demoStateStore.setNeverShowAgain( "seen", true );
+        final List< String > listNotifiedIds = new ArrayList< String >();
+        final List< Boolean > listNotifiedStates = new ArrayList< Boolean >();
+        DemoStateStore.OnDemoStateLoadedListener listener = new DemoStateStore.OnDemoStateLoadedListener() {
+            @Override
+            public void onDemoStateLoaded( String demoActivityId, boolean isNeverShowAgain ) {
+                listNotifiedIds.add( demoActivityId );
+                listNotifiedStates.add( isNeverShowAgain );
+            }
+        };
+        demoStateStore.isNeverShowAgain( "seen", listener );
+        demoStateStore.isNeverShowAgain( "unseen", listener );
+
+        long deadline = System.currentTimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while ( listNotifiedIds.size() < 2 && System.currentTimeMillis() < deadline ) {
+            Thread.sleep( 10 );
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        }
+
+        assertTrue( demoStateStore.isLoaded() );
+        assertEquals( 2, listNotifiedIds.size() );
+        assertEquals( "seen", listNotifiedIds.get( 0 ) );
+        assertTrue( listNotifiedStates.get( 0 ) );
+        assertEquals( "unseen", listNotifiedIds.get( 1 ) );
+        assertFalse( listNotifiedStates.get( 1 ) );
+    }
+}
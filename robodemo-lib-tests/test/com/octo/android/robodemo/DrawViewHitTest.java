@@ -0,0 +1,67 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.graphics.Rect;
+
+/**
+ * Checks that taps find the points drawn at every step of the animation.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class DrawViewHitTest {
+
+    private static final int POINTS_COUNT = 5;
+
+    private DrawView drawView;
+    private final Rect pointBounds = new Rect();
+
+    @Before
+    public void setUp() {
+        drawView = new DrawView( RuntimeEnvironment.application );
+        drawView.setDrawViewAdapter( TestDemos.createAdapter( RuntimeEnvironment.application, POINTS_COUNT ) );
+        drawView.layout( 0, 0, TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+    }
+
+    @Test
+    public void tapsFindPointsDrawnOneAtATime() {
+        drawView.setDrawingOnePointAtATime( true );
+        for ( int step = 1; step < POINTS_COUNT; step++ ) {
+            assertTapFindsPoint( step );
+        }
+        // going back rebuilds the index of points.
+        assertTapFindsPoint( 0 );
+        assertTapFindsPoint( POINTS_COUNT - 1 );
+    }
+
+    @Test
+    public void tapsFindPointsDrawnTogether() {
+        for ( int step = 1; step < POINTS_COUNT; step++ ) {
+            assertTapFindsPoint( step );
+        }
+    }
+
+    @Test
+    public void tapsOutsideOfPointsFindNothing() {
+        drawView.setDrawingOnePointAtATime( true );
+        drawView.showPoint( 2 );
+        drawView.getPointBounds( 1, pointBounds );
+        assertEquals( -1, drawView.getPointPositionAt( pointBounds.centerX(), pointBounds.centerY() ) );
+    }
+
+    private void assertTapFindsPoint( int step ) {
+        drawView.showPoint( step );
+        drawView.getPointBounds( step, pointBounds );
+        assertEquals( step, drawView.getPointPositionAt( pointBounds.centerX(), pointBounds.centerY() ) );
+    }
+}
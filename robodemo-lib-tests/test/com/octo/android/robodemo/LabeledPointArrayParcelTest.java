@@ -0,0 +1,100 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+/**
+ * Compares the size of a demo passed to a {@link DemoActivity} as a {@link LabeledPointArray} and as an
+ * {@link ArrayList} of {@link LabeledPoint}, for 10, 100 and 1000 points. Sizes are those reported by Robolectric
+ * parcels, which account values as native parcels do. Robolectric parcels hold each value as an object, so they are
+ * not timed here : see SerializationBenchmark in robodemo-benchmark, which compares the time to write and read both
+ * forms.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE)
+public class LabeledPointArrayParcelTest {
+
+    private static final int[] POINTS_COUNTS = { 10, 100, 1000 };
+    private static final String KEY = "points";
+
+    @Test
+    public void labeledPointArrayIsRestoredFromParcel() {
+        ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( 100 );
+        Bundle bundle = unmarshal( marshal( createArrayBundle( listPoints ) ) );
+        LabeledPointArray labeledPointArray = bundle.getParcelable( KEY );
+
+        assertEquals( listPoints.size(), labeledPointArray.size() );
+        for ( int index = 0; index < listPoints.size(); index++ ) {
+            assertEquals( listPoints.get( index ).x, labeledPointArray.getX( index ) );
+            assertEquals( listPoints.get( index ).y, labeledPointArray.getY( index ) );
+            assertEquals( listPoints.get( index ).getText(), labeledPointArray.getText( index ) );
+        }
+    }
+
+    @Test
+    public void labeledPointArrayIsSmallerThanArrayList() {
+        for ( int pointsCount : POINTS_COUNTS ) {
+            ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( pointsCount );
+            Bundle arrayBundle = createArrayBundle( listPoints );
+            Bundle listBundle = new Bundle();
+            listBundle.putParcelableArrayList( KEY, listPoints );
+
+            int arraySize = getParcelSize( arrayBundle );
+            int listSize = getParcelSize( listBundle );
+
+            assertTrue( pointsCount + " points : " + arraySize + " >= " + listSize + " bytes", arraySize < listSize );
+        }
+    }
+
+    private static Bundle createArrayBundle( ArrayList< LabeledPoint > listPoints ) {
+        Bundle bundle = new Bundle();
+        bundle.putParcelable( KEY, new LabeledPointArray( listPoints ) );
+        return bundle;
+    }
+
+    private static int getParcelSize( Bundle bundle ) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle( bundle );
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static byte[] marshal( Bundle bundle ) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle( bundle );
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static Bundle unmarshal( byte[] bytes ) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall( bytes, 0, bytes.length );
+            parcel.setDataPosition( 0 );
+            Bundle bundle = parcel.readBundle( LabeledPointArrayParcelTest.class.getClassLoader() );
+            bundle.size();
+            return bundle;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.app.Activity;
+import android.view.View;
+
+/**
+ * Checks that copies of points can be relocated without moving the original points.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class LabeledPointTest {
+
+    @Test
+    public void relocatingCopyDoesntMoveOriginal() {
+        Activity activity = Robolectric.setupActivity( Activity.class );
+        LabeledPoint point = new LabeledPoint( activity, 0.5f, 0.25f, "text" );
+        int x = point.x;
+        int y = point.y;
+
+        LabeledPoint copy = new LabeledPoint( point );
+        assertEquals( "text", copy.getText() );
+        assertTrue( copy.isRelativeToScreen() );
+        assertTrue( copy.relocateInScreen( TestDemos.SCREEN_HEIGHT, TestDemos.SCREEN_WIDTH ) );
+
+        assertEquals( TestDemos.SCREEN_HEIGHT / 2, copy.x );
+        assertEquals( x, point.x );
+        assertEquals( y, point.y );
+    }
+
+    @Test
+    public void copyKeepsAnchor() {
+        View view = new View( RuntimeEnvironment.application );
+        LabeledPoint copy = new LabeledPoint( LabeledPoint.anchoredTo( view, 50, 50, "text" ) );
+
+        assertTrue( copy.isAnchored() );
+        assertSame( view, copy.getAnchorView() );
+    }
+}
@@ -0,0 +1,93 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Checks that the atlas of markers reclaims stale slots and never recycles bitmaps that frames may still reference.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE)
+public class MarkerAtlasTest {
+
+    // far more slots of this size than the atlas can hold.
+    private static final int RESIZES_COUNT = 500;
+    private static final int MARKER_SIZE = 100;
+
+    private MarkerAtlas markerAtlas;
+    private BitmapCanvas canvas;
+
+    @Before
+    public void setUp() {
+        markerAtlas = new MarkerAtlas();
+        canvas = new BitmapCanvas();
+    }
+
+    @Test
+    public void drawablesWhoseBoundsChangeAreStillDrawnFromAtlas() {
+        Drawable drawable = TestDemos.createMarker();
+        Drawable otherDrawable = TestDemos.createMarker();
+        otherDrawable.setBounds( 0, 0, TestDemos.MARKER_SIZE, TestDemos.MARKER_SIZE );
+
+        for ( int resize = 0; resize < RESIZES_COUNT; resize++ ) {
+            int size = MARKER_SIZE + resize % 2;
+            drawable.setBounds( 0, 0, size, size );
+            assertTrue( "resize " + resize, markerAtlas.draw( canvas, drawable ) );
+            assertTrue( "resize " + resize, markerAtlas.draw( canvas, otherDrawable ) );
+        }
+    }
+
+    @Test
+    public void bitmapsAreNotRecycled() {
+        Drawable drawable = TestDemos.createMarker();
+        drawable.setBounds( 0, 0, MARKER_SIZE, MARKER_SIZE );
+        markerAtlas.draw( canvas, drawable );
+        Bitmap drawnBitmap = canvas.lastBitmap;
+        assertNotNull( drawnBitmap );
+
+        for ( int resize = 1; resize < RESIZES_COUNT; resize++ ) {
+            int size = MARKER_SIZE + resize % 2;
+            drawable.setBounds( 0, 0, size, size );
+            markerAtlas.draw( canvas, drawable );
+        }
+        assertNotSame( drawnBitmap, canvas.lastBitmap );
+        assertFalse( drawnBitmap.isRecycled() );
+
+        drawnBitmap = canvas.lastBitmap;
+        markerAtlas.release();
+        assertFalse( drawnBitmap.isRecycled() );
+    }
+
+    /**
+     * Keeps the last bitmap drawn.
+     */
+    private static final class BitmapCanvas extends CountingCanvas {
+        private Bitmap lastBitmap;
+
+        BitmapCanvas() {
+            super( TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+        }
+
+        @Override
+        public void drawBitmap( Bitmap bitmap, Rect src, Rect dst, Paint paint ) {
+            super.drawBitmap( bitmap, src, dst, paint );
+            lastBitmap = bitmap;
+        }
+    }
+}
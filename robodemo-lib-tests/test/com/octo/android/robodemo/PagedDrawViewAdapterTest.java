@@ -0,0 +1,137 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import com.octo.android.robodemo.core.PointArray;
+import com.octo.android.robodemo.core.PointSource;
+
+/**
+ * Checks that pages are read without waiting for the background executor and that pages that can't be read are not
+ * drawn.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class PagedDrawViewAdapterTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int PAGES_COUNT = 4;
+    private static final long MAX_PAGE_READ_DURATION = 2000;
+
+    private final CountDownLatch latchBackgroundExecutor = new CountDownLatch( 1 );
+    private PagedDrawViewAdapter pagedDrawViewAdapter;
+
+    @After
+    public void tearDown() {
+        latchBackgroundExecutor.countDown();
+        if ( pagedDrawViewAdapter != null ) {
+            pagedDrawViewAdapter.close();
+        }
+    }
+
+    @Test
+    public void unreadablePageIsNotDrawn() {
+        pagedDrawViewAdapter = createAdapter( 1 );
+
+        int position = PAGE_SIZE + 1;
+        assertNull( pagedDrawViewAdapter.getDrawableAt( position ) );
+        assertNull( pagedDrawViewAdapter.getTextLayoutAt( position ) );
+        assertNull( pagedDrawViewAdapter.getTextPointAt( position ) );
+        assertNotNull( pagedDrawViewAdapter.getTextLayoutAt( 0 ) );
+
+        DemoRenderer demoRenderer = new DemoRenderer( RuntimeEnvironment.application, pagedDrawViewAdapter );
+        CountingCanvas canvas = new CountingCanvas( TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+        demoRenderer.draw( canvas, pagedDrawViewAdapter.getPointsCount() - 1 );
+        assertTrue( canvas.getDrawCount() > 0 );
+    }
+
+    @Test
+    public void pendingPrefetchDoesntBlockPageRead() {
+        pagedDrawViewAdapter = createAdapter( -1 );
+        // the prefetch of the next page is queued behind a long task, as it would be behind the preparation of a demo.
+        BackgroundExecutors.getPreparationExecutor().submit( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latchBackgroundExecutor.await( 10, TimeUnit.SECONDS );
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        pagedDrawViewAdapter.getTextLayoutAt( 0 );
+
+        long start = System.nanoTime();
+        assertNotNull( pagedDrawViewAdapter.getTextLayoutAt( PAGE_SIZE ) );
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        assertTrue( "reading page took " + durationMillis + " ms", durationMillis < MAX_PAGE_READ_DURATION );
+        assertEquals( 1, latchBackgroundExecutor.getCount() );
+    }
+
+    private PagedDrawViewAdapter createAdapter( int unreadablePageIndex ) {
+        TextPaint textPaint = DefaultDrawViewAdapter.createDefaultTextPaint( RuntimeEnvironment.application );
+        // paints of Robolectric have no style until it is set.
+        textPaint.setStyle( Paint.Style.FILL );
+        return new PagedDrawViewAdapter( RuntimeEnvironment.application, TestDemos.createMarker(), textPaint, new TestPointSource(
+                unreadablePageIndex ), PAGE_SIZE, PAGES_COUNT );
+    }
+
+    /**
+     * Points of {@link TestDemos#createPoints(int)}, one page of which can't be read.
+     */
+    private static final class TestPointSource implements PointSource {
+        private final ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( PAGE_SIZE * PAGES_COUNT );
+        private final int unreadablePageIndex;
+
+        TestPointSource( int unreadablePageIndex ) {
+            this.unreadablePageIndex = unreadablePageIndex;
+        }
+
+        @Override
+        public int size() {
+            return listPoints.size();
+        }
+
+        @Override
+        public PointArray read( int from, int count ) throws IOException {
+            if ( from / PAGE_SIZE == unreadablePageIndex ) {
+                throw new IOException( "Page " + unreadablePageIndex + " is corrupted" );
+            }
+            int readCount = Math.min( count, listPoints.size() - from );
+            int[] xs = new int[ readCount ];
+            int[] ys = new int[ readCount ];
+            String[] texts = new String[ readCount ];
+            for ( int index = 0; index < readCount; index++ ) {
+                LabeledPoint labeledPoint = listPoints.get( from + index );
+                xs[ index ] = labeledPoint.x;
+                ys[ index ] = labeledPoint.y;
+                texts[ index ] = labeledPoint.getText();
+            }
+            return new PointArray( xs, ys, texts );
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.octo.android.robodemo;
+
+/**
+ * Ids of the resources of robodemo-lib. Library sources are compiled here without their resources, which would require
+ * the Android SDK : tests never inflate layouts nor load drawables, these ids only let the sources compile.
+ * 
+ * @author sni
+ * 
+ */
+public final class R {
+
+    private R() {
+    }
+
+    public static final class id {
+        public static final int button_demo_finish = 1;
+        public static final int checkbox_demo_never_again = 2;
+        public static final int drawView_move_content_demo = 3;
+        public static final int layout_demo_buttons = 4;
+        public static final int textview_demo_never_again = 5;
+    }
+
+    public static final class layout {
+        public static final int activity_demo = 1;
+    }
+
+    public static final class drawable {
+        public static final int ic_lockscreen_handle_pressed = 1;
+    }
+}
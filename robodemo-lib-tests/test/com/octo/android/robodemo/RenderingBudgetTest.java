@@ -0,0 +1,151 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+/**
+ * Renders demos of 10, 100 and 1000 points in every drawing mode and checks that adapter calls, canvas operations,
+ * canvas saves and bitmap allocations stay within the budgets of rendering-budgets.properties. These counts don't
+ * depend on the JVM running the test, unlike allocated bytes which are checked by {@link DemoRendererAllocationTest}.
+ * Failures report measured values in the format of the budgets file, so that budgets can be updated when a change is
+ * meant to cost more, or less.
+ * 
+ * Each demo is drawn at {@link #FRAMES_COUNT} steps spread over its animation, the last one ending it.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class RenderingBudgetTest {
+
+    private static final String BUDGETS_RESOURCE = "rendering-budgets.properties";
+    private static final int FRAMES_COUNT = 10;
+    /** Combinations of drawing one point at a time, showing all points at the end and the clear xfermode. */
+    private static final int MODES_COUNT = 8;
+
+    private static Properties budgets;
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        InputStream inputStream = RenderingBudgetTest.class.getResourceAsStream( BUDGETS_RESOURCE );
+        if ( inputStream == null ) {
+            throw new IOException( BUDGETS_RESOURCE + " not found" );
+        }
+        try {
+            budgets.load( inputStream );
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void demoOf10PointsStaysWithinBudgets() {
+        assertWithinBudgets( 10 );
+    }
+
+    @Test
+    public void demoOf100PointsStaysWithinBudgets() {
+        assertWithinBudgets( 100 );
+    }
+
+    @Test
+    public void demoOf1000PointsStaysWithinBudgets() {
+        assertWithinBudgets( 1000 );
+    }
+
+    private void assertWithinBudgets( int pointsCount ) {
+        List< String > listOverBudgets = new ArrayList< String >();
+        for ( int mode = 0; mode < MODES_COUNT; mode++ ) {
+            String prefix = "points" + pointsCount + '.' + ( isDrawingOnePointAtATime( mode ) ? "onePoint" : "allPoints" ) + '-'
+                    + ( isShowingAllPointsAtTheEndOfAnimation( mode ) ? "showAllAtEnd" : "hideAllAtEnd" ) + '-'
+                    + ( isClearPorterDuffXfermodeEnabled( mode ) ? "clear" : "noClear" ) + '.';
+            Measures measures = render( pointsCount, mode );
+            checkBudget( prefix + "adapterCalls", measures.adapterCalls, listOverBudgets );
+            checkBudget( prefix + "canvasOps", measures.canvasOps, listOverBudgets );
+            checkBudget( prefix + "canvasSaves", measures.canvasSaves, listOverBudgets );
+            checkBudget( prefix + "bitmapAllocations", measures.bitmapAllocations, listOverBudgets );
+        }
+        if ( !listOverBudgets.isEmpty() ) {
+            fail( "Over budget:\n" + join( listOverBudgets ) );
+        }
+    }
+
+    private static Measures render( int pointsCount, int mode ) {
+        DrawView drawView = new DrawView( RuntimeEnvironment.application );
+        drawView.setDrawingOnePointAtATime( isDrawingOnePointAtATime( mode ) );
+        drawView.setShowingAllPointsAtTheEndOfAnimation( isShowingAllPointsAtTheEndOfAnimation( mode ) );
+        drawView.setIsClearPorterDuffXfermodeEnabled( isClearPorterDuffXfermodeEnabled( mode ) );
+        drawView.setRenderMetricsEnabled( true );
+        DrawViewAdapter drawViewAdapter = TestDemos.createAdapter( RuntimeEnvironment.application, pointsCount );
+        CountingCanvas canvas = new CountingCanvas( TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+
+        drawView.setDrawViewAdapter( drawViewAdapter );
+        drawView.layout( 0, 0, TestDemos.SCREEN_WIDTH, TestDemos.SCREEN_HEIGHT );
+        for ( int frame = 0; frame < FRAMES_COUNT; frame++ ) {
+            drawView.showPoint( frame * ( pointsCount - 1 ) / ( FRAMES_COUNT - 1 ) );
+            drawView.onDraw( canvas );
+        }
+        Measures measures = new Measures();
+        RenderMetrics renderMetrics = drawView.getRenderMetrics();
+        assertEquals( FRAMES_COUNT, renderMetrics.getFrameCount() );
+        measures.adapterCalls = renderMetrics.getAdapterCallsPerFrame().getSum();
+        measures.canvasOps = canvas.getDrawCount();
+        measures.canvasSaves = canvas.getSaveCallCount();
+        measures.bitmapAllocations = renderMetrics.getBitmapAllocationCount();
+        return measures;
+    }
+
+    private static boolean isDrawingOnePointAtATime( int mode ) {
+        return ( mode & 1 ) != 0;
+    }
+
+    private static boolean isShowingAllPointsAtTheEndOfAnimation( int mode ) {
+        return ( mode & 2 ) != 0;
+    }
+
+    private static boolean isClearPorterDuffXfermodeEnabled( int mode ) {
+        return ( mode & 4 ) != 0;
+    }
+
+    private static void checkBudget( String key, long measured, List< String > listOverBudgets ) {
+        String budget = budgets.getProperty( key );
+        if ( budget == null ) {
+            listOverBudgets.add( key + "=" + measured + " has no budget" );
+        } else if ( measured > Long.parseLong( budget.trim() ) ) {
+            listOverBudgets.add( key + "=" + measured + " is over budget " + budget.trim() );
+        }
+    }
+
+    /**
+     * What rendering a demo cost.
+     */
+    private static final class Measures {
+        private long adapterCalls;
+        private long canvasOps;
+        private long canvasSaves;
+        private long bitmapAllocations;
+    }
+
+    private static String join( List< String > lines ) {
+        StringBuilder builder = new StringBuilder();
+        for ( String line : lines ) {
+            builder.append( line ).append( '\n' );
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import android.content.Intent;
+import android.os.SystemClock;
+
+/**
+ * Checks that an intent prepared for a {@link DemoActivity} only carries a token, and that the registry releases the
+ * demos it holds once they are taken or expired.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE)
+public class RoboDemoIntentTest {
+
+    @Test
+    public void intentCarriesOnlyToken() {
+        ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( 10 );
+        Intent intent = new Intent();
+        RoboDemo.prepareDemoActivityIntent( intent, "demo", listPoints );
+
+        assertNotNull( intent.getStringExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_TOKEN ) );
+        assertFalse( intent.hasExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY ) );
+        assertFalse( intent.hasExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS ) );
+    }
+
+    @Test
+    public void demoIsTakenOnce() {
+        ArrayList< LabeledPoint > listPoints = TestDemos.createPoints( 10 );
+        Intent intent = new Intent();
+        RoboDemo.prepareDemoActivityIntent( intent, "demo", listPoints );
+
+        String demoToken = intent.getStringExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_TOKEN );
+        assertSame( listPoints, DemoRegistry.take( demoToken ).getListPoints() );
+        assertNull( DemoRegistry.take( demoToken ) );
+    }
+
+    @Test
+    public void expiredDemoIsRemovedWhenAnotherDemoIsRegistered() {
+        Intent intent = new Intent();
+        RoboDemo.prepareDemoActivityIntent( intent, "demo", TestDemos.createPoints( 10 ) );
+        String expiredDemoToken = intent.getStringExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_TOKEN );
+
+        SystemClock.sleep( DemoRegistry.EXPIRY_DELAY );
+        RoboDemo.prepareDemoActivityIntent( intent, "demo", TestDemos.createPoints( 10 ) );
+
+        assertNull( DemoRegistry.take( expiredDemoToken ) );
+        assertNotNull( DemoRegistry.take( intent.getStringExtra( RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_TOKEN ) ) );
+    }
+}
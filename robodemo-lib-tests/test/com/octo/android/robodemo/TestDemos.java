@@ -0,0 +1,112 @@
+package com.octo.android.robodemo;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+
+/**
+ * Demos and measures shared by tests.
+ * 
+ * @author sni
+ * 
+ */
+final class TestDemos {
+
+    static final int SCREEN_WIDTH = 480;
+    static final int SCREEN_HEIGHT = 800;
+    static final int MARKER_SIZE = 48;
+
+    private TestDemos() {
+    }
+
+    /**
+     * @return pointsCount points spread over the screen, with texts of various lengths.
+     */
+    static ArrayList< LabeledPoint > createPoints( int pointsCount ) {
+        ArrayList< LabeledPoint > listPoints = new ArrayList< LabeledPoint >( pointsCount );
+        for ( int index = 0; index < pointsCount; index++ ) {
+            int x = ( index * 97 ) % SCREEN_WIDTH;
+            int y = ( index * 61 ) % SCREEN_HEIGHT;
+            listPoints.add( new LabeledPoint( x, y, "Point " + index + ( index % 3 == 0 ? " with a longer text to wrap" : "" ) ) );
+        }
+        return listPoints;
+    }
+
+    /**
+     * @return a plain marker with an intrinsic size, as resources of robodemo-lib are not available to tests.
+     */
+    static Drawable createMarker() {
+        return new MarkerDrawable();
+    }
+
+    static DefaultDrawViewAdapter createAdapter( Context context, int pointsCount ) {
+        TextPaint textPaint = new TextPaint();
+        textPaint.setTextSize( 22 );
+        textPaint.setShadowLayer( 2.0f, 0, 2.0f, 0xFF000000 );
+        return new DefaultDrawViewAdapter( context, createMarker(), textPaint, createPoints( pointsCount ) );
+    }
+
+    /**
+     * @return the number of bytes allocated so far by the current thread.
+     */
+    static long getAllocatedBytes() {
+        return ( (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() ).getThreadAllocatedBytes( Thread.currentThread().getId() );
+    }
+
+    /**
+     * A square filled with a color. Invalidation is implemented as the framework does, instead of going through the
+     * shadow of Robolectric which allocates on each call.
+     */
+    private static final class MarkerDrawable extends Drawable {
+        private final Paint paint = new Paint();
+
+        MarkerDrawable() {
+            paint.setColor( 0xFFFF0000 );
+        }
+
+        @Override
+        public void draw( Canvas canvas ) {
+            canvas.drawRect( getBounds(), paint );
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return MARKER_SIZE;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return MARKER_SIZE;
+        }
+
+        @Override
+        public void invalidateSelf() {
+            Callback callback = getCallback();
+            if ( callback != null ) {
+                callback.invalidateDrawable( this );
+            }
+        }
+
+        @Override
+        public void setAlpha( int alpha ) {
+            paint.setAlpha( alpha );
+        }
+
+        @Override
+        public void setColorFilter( ColorFilter colorFilter ) {
+            paint.setColorFilter( colorFilter );
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
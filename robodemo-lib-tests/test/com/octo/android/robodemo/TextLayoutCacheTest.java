@@ -0,0 +1,84 @@
+package com.octo.android.robodemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.graphics.Paint;
+import android.text.Layout;
+import android.text.TextPaint;
+
+/**
+ * Checks that layouts are shared between paints with the same shadow only, and that the cache is sized by the memory
+ * of its layouts.
+ * 
+ * @author sni
+ * 
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 21, manifest = Config.NONE, qualifiers = "w480dp-h800dp-port-mdpi")
+public class TextLayoutCacheTest {
+
+    private static final String TEXT = "Tap here to refresh";
+    private static final int MAX_WIDTH = 240;
+
+    private TextLayoutCache textLayoutCache;
+
+    @Before
+    public void setUp() {
+        textLayoutCache = TextLayoutCache.getInstance();
+        textLayoutCache.evictAll();
+    }
+
+    @Test
+    public void defaultTextPaintsShareLayouts() {
+        Layout layout = textLayoutCache.getLayout( TEXT, createDefaultTextPaint(), MAX_WIDTH );
+
+        assertSame( layout, textLayoutCache.getLayout( TEXT, createDefaultTextPaint(), MAX_WIDTH ) );
+    }
+
+    @Test
+    public void paintsWithOtherShadowsDontShareLayouts() {
+        TextPaint textPaint = createDefaultTextPaint();
+        Layout layout = textLayoutCache.getLayout( TEXT, textPaint, MAX_WIDTH );
+
+        TextPaint otherTextPaint = new LabelTextPaint( textPaint );
+        otherTextPaint.setShadowLayer( 4.0f, 0, 4.0f, 0xFF000000 );
+        assertNotSame( layout, textLayoutCache.getLayout( TEXT, otherTextPaint, MAX_WIDTH ) );
+        otherTextPaint.clearShadowLayer();
+        assertNotSame( layout, textLayoutCache.getLayout( TEXT, otherTextPaint, MAX_WIDTH ) );
+    }
+
+    @Test
+    public void layoutsOfPaintsWithUnknownShadowAreNotCached() {
+        TextPaint textPaint = new TextPaint();
+        textPaint.setShadowLayer( 2.0f, 0, 2.0f, 0xFF000000 );
+        Layout layout = textLayoutCache.getLayout( TEXT, textPaint, MAX_WIDTH );
+
+        assertSame( textPaint, layout.getPaint() );
+        assertNotSame( layout, textLayoutCache.getLayout( TEXT, textPaint, MAX_WIDTH ) );
+        assertNotSame( layout, textLayoutCache.getLayout( TEXT, new LabelTextPaint( textPaint ), MAX_WIDTH ) );
+        assertEquals( 0, textLayoutCache.size() );
+    }
+
+    @Test
+    public void cacheIsSizedByMemoryOfLayouts() {
+        Layout layout = textLayoutCache.getLayout( TEXT, createDefaultTextPaint(), MAX_WIDTH );
+
+        assertEquals( TextLayoutCache.estimateSize( TEXT, layout ), textLayoutCache.size() );
+    }
+
+    private static TextPaint createDefaultTextPaint() {
+        TextPaint textPaint = DefaultDrawViewAdapter.createDefaultTextPaint( RuntimeEnvironment.application );
+        // paints of Robolectric have no style until it is set, the paints of the framework are filled by default.
+        textPaint.setStyle( Paint.Style.FILL );
+        return textPaint;
+    }
+}
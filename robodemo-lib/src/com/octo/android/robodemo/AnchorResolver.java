@@ -0,0 +1,66 @@
+package com.octo.android.robodemo;
+
+import java.util.List;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Resolves the location of all view-anchored {@link LabeledPoint} of a demo in a single pass, right before the next
+ * frame of the window is drawn, i.e. once its layout is complete. The location of the root view on screen is read only
+ * once, the location of each anchor view is then computed by walking its parents up to the root view.
+ * 
+ * @see LabeledPoint#anchoredTo(View, float, float, String)
+ * @author sni
+ * 
+ */
+final class AnchorResolver implements ViewTreeObserver.OnPreDrawListener {
+
+    private final View rootView;
+    private final List< LabeledPoint > listPoints;
+    private final RoboDemo.OnAnchorsResolvedListener onAnchorsResolvedListener;
+
+    AnchorResolver( View rootView, List< LabeledPoint > listPoints, RoboDemo.OnAnchorsResolvedListener onAnchorsResolvedListener ) {
+        this.rootView = rootView;
+        this.listPoints = listPoints;
+        this.onAnchorsResolvedListener = onAnchorsResolvedListener;
+    }
+
+    /**
+     * Waits for the next layout pass of the root view, and resolves anchors then.
+     */
+    void start() {
+        rootView.getViewTreeObserver().addOnPreDrawListener( this );
+        // makes sure a traversal, and so a pre draw pass, happens even if nothing else changes in the window.
+        rootView.invalidate();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        ViewTreeObserver viewTreeObserver = rootView.getViewTreeObserver();
+        if ( viewTreeObserver.isAlive() ) {
+            viewTreeObserver.removeOnPreDrawListener( this );
+        }
+        resolve( rootView, listPoints );
+        onAnchorsResolvedListener.onAnchorsResolved( listPoints );
+        return true;
+    }
+
+    /**
+     * Resolves immediately the location of all anchored points of a list. The layout of rootView must be complete.
+     * 
+     * @param rootView
+     *            the root view of the window of anchor views.
+     * @param listPoints
+     *            the points to resolve, points that are not anchored are left untouched.
+     */
+    static void resolve( View rootView, List< LabeledPoint > listPoints ) {
+        int[] rootLocation = new int[ 2 ];
+        rootView.getLocationOnScreen( rootLocation );
+        Rect scratchRect = new Rect();
+        for ( int index = 0, count = listPoints.size(); index < count; index++ ) {
+            listPoints.get( index ).resolveAnchor( rootView, rootLocation, scratchRect );
+        }
+    }
+}
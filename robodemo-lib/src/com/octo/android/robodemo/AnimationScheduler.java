@@ -0,0 +1,156 @@
+package com.octo.android.robodemo;
+
+import java.lang.ref.WeakReference;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Message;
+import android.view.Choreographer;
+
+/**
+ * Drives the animation of a {@link DrawView}. There is a single scheduler per {@link DrawView}, it only runs while the
+ * animation is started and not paused, so that it doesn't wake up the main looper once the animation is over or while
+ * the {@link DrawView} is not visible.
+ * 
+ * On Jelly Bean and above, ticks are aligned on the display frame clock : once the delay between points is elapsed,
+ * the next point is shown at the beginning of the next frame.
+ * 
+ * @author sni
+ * 
+ */
+final class AnimationScheduler extends Handler {
+    private static final int ANIMATION_MESSAGE_ID = 0;
+
+    private final WeakReference< DrawView > weakReference;
+    private final FrameClock frameClock;
+    private long delayBetweenTicks;
+    private boolean isStarted = false;
+    private boolean isPaused = false;
+    // time at which the pending tick is due, in System.nanoTime() time base.
+    private long nextTickTimeNanos;
+
+    AnimationScheduler( DrawView drawView, long delayBetweenTicks ) {
+        this.weakReference = new WeakReference< DrawView >( drawView );
+        this.delayBetweenTicks = delayBetweenTicks;
+        if ( Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ) {
+            frameClock = new FrameClock( this );
+        } else {
+            frameClock = null;
+        }
+    }
+
+    /**
+     * Changes the delay between two ticks. A pending tick is rescheduled with the new delay.
+     * 
+     * @param delayBetweenTicks
+     *            the new delay between ticks (in ms).
+     */
+    void setDelayBetweenTicks( long delayBetweenTicks ) {
+        this.delayBetweenTicks = delayBetweenTicks;
+        scheduleNextTick();
+    }
+
+    /**
+     * (Re)starts ticking. The first tick will happen after the delay between ticks.
+     */
+    void start() {
+        isStarted = true;
+        scheduleNextTick();
+    }
+
+    /**
+     * Stops ticking until {@link #start()} is called again.
+     */
+    void stop() {
+        isStarted = false;
+        cancelNextTick();
+    }
+
+    /**
+     * Suspends ticking without stopping the animation, {@link #resume()} will restart it if it was started.
+     */
+    void pause() {
+        isPaused = true;
+        cancelNextTick();
+    }
+
+    void resume() {
+        if ( isPaused ) {
+            isPaused = false;
+            scheduleNextTick();
+        }
+    }
+
+    boolean isRunning() {
+        return isStarted && !isPaused;
+    }
+
+    private void scheduleNextTick() {
+        cancelNextTick();
+        if ( isRunning() ) {
+            nextTickTimeNanos = System.nanoTime() + delayBetweenTicks * 1000000L;
+            sendEmptyMessageDelayed( ANIMATION_MESSAGE_ID, delayBetweenTicks );
+        }
+    }
+
+    private void cancelNextTick() {
+        removeMessages( ANIMATION_MESSAGE_ID );
+        if ( frameClock != null ) {
+            frameClock.cancel();
+        }
+    }
+
+    @Override
+    public void handleMessage( Message msg ) {
+        super.handleMessage( msg );
+        if ( msg.what == ANIMATION_MESSAGE_ID ) {
+            if ( frameClock != null ) {
+                frameClock.postTick();
+            } else {
+                tick();
+            }
+        }
+    }
+
+    private void tick() {
+        DrawView drawView = weakReference.get();
+        if ( drawView == null || drawView.getDrawViewAdapter() == null ) {
+            stop();
+            return;
+        }
+        if ( !isRunning() ) {
+            return;
+        }
+        drawView.onAnimationTick( System.nanoTime() - nextTickTimeNanos );
+        scheduleNextTick();
+    }
+
+    /**
+     * Posts ticks on the next display frame.
+     * 
+     * @author sni
+     * 
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameClock implements Choreographer.FrameCallback {
+        private final AnimationScheduler scheduler;
+
+        private FrameClock( AnimationScheduler scheduler ) {
+            this.scheduler = scheduler;
+        }
+
+        private void postTick() {
+            Choreographer.getInstance().postFrameCallback( this );
+        }
+
+        private void cancel() {
+            Choreographer.getInstance().removeFrameCallback( this );
+        }
+
+        @Override
+        public void doFrame( long frameTimeNanos ) {
+            scheduler.tick();
+        }
+    }
+}
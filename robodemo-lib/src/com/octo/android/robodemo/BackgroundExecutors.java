@@ -0,0 +1,78 @@
+package com.octo.android.robodemo;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Process;
+
+/**
+ * Holds the executors used by RoboDemo to prepare demos off the UI thread. They are created lazily and their threads
+ * are daemon threads running in background priority.
+ * 
+ * @author sni
+ * 
+ */
+final class BackgroundExecutors {
+
+    private static ExecutorService preparationExecutor;
+    private static ExecutorService layoutExecutor;
+    private static ExecutorService storageExecutor;
+
+    private BackgroundExecutors() {
+    }
+
+    /**
+     * @return a single threaded executor used to run whole demo preparations, one after the other.
+     */
+    static synchronized ExecutorService getPreparationExecutor() {
+        if ( preparationExecutor == null ) {
+            preparationExecutor = Executors.newSingleThreadExecutor( new BackgroundThreadFactory( "RoboDemo-prepare" ) );
+        }
+        return preparationExecutor;
+    }
+
+    /**
+     * @return an executor with one thread per available processor, used to lay out texts in parallel.
+     */
+    static synchronized ExecutorService getLayoutExecutor() {
+        if ( layoutExecutor == null ) {
+            int threadCount = Runtime.getRuntime().availableProcessors();
+            layoutExecutor = Executors.newFixedThreadPool( threadCount, new BackgroundThreadFactory( "RoboDemo-layout" ) );
+        }
+        return layoutExecutor;
+    }
+
+    /**
+     * @return a single threaded executor used to read and write the state of demos, one operation after the other.
+     */
+    static synchronized ExecutorService getStorageExecutor() {
+        if ( storageExecutor == null ) {
+            storageExecutor = Executors.newSingleThreadExecutor( new BackgroundThreadFactory( "RoboDemo-storage" ) );
+        }
+        return storageExecutor;
+    }
+
+    private static final class BackgroundThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        private BackgroundThreadFactory( String namePrefix ) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread( final Runnable runnable ) {
+            Thread thread = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority( Process.THREAD_PRIORITY_BACKGROUND );
+                    runnable.run();
+                }
+            }, namePrefix + "-" + threadCount.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
@@ -1,21 +1,25 @@
 package com.octo.android.robodemo;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import android.content.Context;
 import android.content.res.Configuration;
 import android.graphics.Point;
-import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
 import android.text.Layout;
-import android.text.Layout.Alignment;
-import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.util.TypedValue;
-import android.view.Display;
 import android.view.WindowManager;
 
+import com.octo.android.robodemo.core.LabelPlacer;
+
 // ============================================================================================
 // INNER CLASSES
 // ============================================================================================
@@ -29,19 +33,48 @@ public class DefaultDrawViewAdapter implements DrawViewAdapter {
 
     private static final float TEXT_MARGIN = 7;
     private static final float DEFAULT_FONT_SIZE = 22;
+    private static final float PLACEMENT_GRID_CELL_SIZE = 48;
+    // portrait and landscape.
+    private static final int MAX_CACHED_TEXT_WIDTHS = 2;
     private Drawable drawable;
     private TextPaint textPaint;
     private int maxTextWidth = 80;
     private int screenWidth = 0;
     private int screenHeight = 0;
+    // points given as a list are copied into points when the cache is built.
     private List< LabeledPoint > listPoints;
+    private LabeledPointArray points;
     private int margin;
     private Context context;
 
+    // per position cache, in flat arrays, built once and invalidated when points, paint, max text width or
+    // configuration change.
+    private Layout[] textLayouts;
+    private int[] textXs;
+    private int[] textYs;
+    // left, top, right and bottom of the drawable of each point.
+    private int[] drawableBounds;
+    private final Point textPoint = new Point();
+    // layouts of texts per max text width, so that rotating back and forth doesn't lay out texts again. Cleared when
+    // texts or paint change.
+    private final Map< Integer, Layout[] > mapTextLayouts = new LinkedHashMap< Integer, Layout[] >( MAX_CACHED_TEXT_WIDTHS + 1, 0.75f, true ) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry< Integer, Layout[] > eldest ) {
+            return size() > MAX_CACHED_TEXT_WIDTHS;
+        }
+    };
+    private boolean isReusingTextLayouts = false;
+    private boolean isCacheValid = false;
+    private boolean isUsingCollisionAwarePlacement = false;
+    private boolean isUsingSharedTextLayoutCache = true;
+    private int cachedOrientation;
+
     public DefaultDrawViewAdapter( Context context, List< LabeledPoint > listPoints ) {
         this.context = context;
         this.drawable = context.getResources().getDrawable( R.drawable.ic_lockscreen_handle_pressed );
-        this.textPaint = initializeDefaultTextPaint();
+        this.textPaint = createDefaultTextPaint( context );
         this.listPoints = listPoints;
 
         initialize();
@@ -58,74 +91,381 @@ public class DefaultDrawViewAdapter implements DrawViewAdapter {
 
     }
 
+    /**
+     * Creates an adapter of points stored in arrays, without a {@link LabeledPoint} object per point.
+     * 
+     * @param context
+     *            the context used to get the screen configuration.
+     * @param points
+     *            the points to draw.
+     */
+    public DefaultDrawViewAdapter( Context context, LabeledPointArray points ) {
+        this( context, context.getResources().getDrawable( R.drawable.ic_lockscreen_handle_pressed ), createDefaultTextPaint( context ), points );
+    }
+
+    public DefaultDrawViewAdapter( Context context, Drawable drawable, TextPaint textPaint, LabeledPointArray points ) {
+        this.context = context;
+        this.drawable = drawable;
+        this.textPaint = textPaint;
+        this.points = points;
+
+        initialize();
+
+    }
+
     public Context getContext() {
         return context;
     }
 
-    private TextPaint initializeDefaultTextPaint() {
-        TextPaint textPaint = new TextPaint();
-        textPaint.setColor( getContext().getResources().getColor( android.R.color.white ) );
+    /**
+     * @return the paint used to render texts when no paint is given : white, with a shadow. It is a
+     *         {@link LabelTextPaint}, so that its layouts are shared through the {@link TextLayoutCache}.
+     */
+    static TextPaint createDefaultTextPaint( Context context ) {
+        TextPaint textPaint = new LabelTextPaint();
+        textPaint.setColor( context.getResources().getColor( android.R.color.white ) );
         textPaint.setShadowLayer( 2.0f, 0, 2.0f, android.R.color.black );
         // http://stackoverflow.com/questions/3061930/how-to-set-unit-for-paint-settextsize
-        textPaint.setTextSize( TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP, DEFAULT_FONT_SIZE, getContext().getResources().getDisplayMetrics() ) );
+        textPaint.setTextSize( TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP, DEFAULT_FONT_SIZE, context.getResources().getDisplayMetrics() ) );
         return textPaint;
     }
 
-    @SuppressWarnings("deprecation")
     private void initialize() {
         WindowManager wm = (WindowManager) context.getSystemService( Context.WINDOW_SERVICE );
-        Display display = wm.getDefaultDisplay();
-        if ( Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB_MR2 ) {
-            Point outSize = new Point();
-            display.getSize( outSize );
-            screenHeight = outSize.y;
-            screenWidth = outSize.x;
-        } else {
-            screenWidth = display.getWidth();
-            screenHeight = display.getHeight();
-        }
+        Point outSize = new Point();
+        LabeledPoint.getScreenSize( wm.getDefaultDisplay(), outSize );
+        screenWidth = outSize.x;
+        screenHeight = outSize.y;
         if ( context.getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT ) {
             maxTextWidth = screenWidth / 2;
         } else {
             maxTextWidth = screenWidth / 3;
         }
         margin = (int) TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP, TEXT_MARGIN, context.getResources().getDisplayMetrics() );
+        cachedOrientation = context.getResources().getConfiguration().orientation;
+        TextLayoutCache.getInstance().onConfigurationChanged( context.getResources().getConfiguration() );
+        isCacheValid = false;
+    }
+
+    /**
+     * Notifies this adapter that its list of {@link LabeledPoint} has been modified. Cached layouts and positions will
+     * be computed again on next access.
+     */
+    public void notifyDataSetChanged() {
+        invalidateTextLayouts();
+    }
+
+    /**
+     * Notifies this adapter that its points have moved, typically once their anchors have been resolved, but that their
+     * texts are unchanged. Cached positions will be computed again on next access, layouts of texts are kept.
+     */
+    public void notifyPointsMoved() {
+        isCacheValid = false;
+    }
+
+    /**
+     * Replaces the points of this adapter by the same points at other locations, typically copies of its points that
+     * have been relocated. Cached positions will be computed again on next access, layouts of texts are kept.
+     * 
+     * @param listPoints
+     *            the moved points, with the same texts and in the same order as the current points.
+     */
+    void setMovedListPoints( List< LabeledPoint > listPoints ) {
+        this.listPoints = listPoints;
+        notifyPointsMoved();
+    }
+
+    /**
+     * Must be called when the screen configuration changes. Screen size, max text width and all cached positions will
+     * be computed again. Layouts of texts computed for the new max text width are reused if texts haven't changed
+     * since, so that rotating back and forth only lays out texts once per orientation.
+     * 
+     * @param newConfig
+     *            the new configuration.
+     */
+    public void onConfigurationChanged( Configuration newConfig ) {
+        initialize();
+    }
+
+    /**
+     * @return the list of points of this adapter. If it has been created from a {@link LabeledPointArray}, a new list is
+     *         created.
+     */
+    public List< LabeledPoint > getListPoints() {
+        return listPoints != null ? listPoints : points.toArrayList();
+    }
+
+    public void setListPoints( List< LabeledPoint > listPoints ) {
+        this.listPoints = listPoints;
+        this.points = null;
+        invalidateTextLayouts();
+    }
+
+    /**
+     * @return the points of this adapter, stored in arrays. If it has been created from a list, the array is a copy of
+     *         the list as it was when layouts were last computed.
+     */
+    public LabeledPointArray getPointArray() {
+        if ( points == null ) {
+            points = new LabeledPointArray( listPoints );
+        }
+        return points;
+    }
+
+    public void setPointArray( LabeledPointArray points ) {
+        this.points = points;
+        this.listPoints = null;
+        invalidateTextLayouts();
+    }
+
+    public TextPaint getTextPaint() {
+        return textPaint;
+    }
+
+    public void setTextPaint( TextPaint textPaint ) {
+        this.textPaint = textPaint;
+        invalidateTextLayouts();
+    }
+
+    public int getMaxTextWidth() {
+        return maxTextWidth;
+    }
+
+    /**
+     * Sets the maximum width of texts. Texts larger than this width will be wrapped on multiple lines.
+     * 
+     * @param maxTextWidth
+     *            the new maximum width of texts (in px).
+     */
+    public void setMaxTextWidth( int maxTextWidth ) {
+        this.maxTextWidth = maxTextWidth;
+        isCacheValid = false;
+    }
+
+    /**
+     * Whether or not labels are moved to avoid overlapping each other and the drawables of other points. Defaults to
+     * false, so that labels stay where previous versions placed them. Turn it on for demos showing several points at
+     * once, whose labels may overlap.
+     * 
+     * @param isUsingCollisionAwarePlacement
+     *            if true, each label is placed at the first anchor around its point that doesn't overlap anything. If
+     *            false, labels are placed in the quadrant of their point that points toward the center of the screen.
+     */
+    public void setUsingCollisionAwarePlacement( boolean isUsingCollisionAwarePlacement ) {
+        this.isUsingCollisionAwarePlacement = isUsingCollisionAwarePlacement;
+        isCacheValid = false;
+    }
+
+    public boolean isUsingCollisionAwarePlacement() {
+        return isUsingCollisionAwarePlacement;
     }
 
+    /**
+     * Whether or not layouts of texts are taken from the process wide {@link TextLayoutCache}, which is the case by
+     * default. Only layouts drawn with a {@link LabelTextPaint}, like the default text paint, are shared : the shadow
+     * layer of other paints can't be read and their layouts are always built by this adapter.
+     * 
+     * @param isUsingSharedTextLayoutCache
+     *            if true, layouts are shared with other adapters. If false, this adapter builds its own layouts.
+     */
+    public void setUsingSharedTextLayoutCache( boolean isUsingSharedTextLayoutCache ) {
+        this.isUsingSharedTextLayoutCache = isUsingSharedTextLayoutCache;
+        invalidateTextLayouts();
+    }
+
+    public boolean isUsingSharedTextLayoutCache() {
+        return isUsingSharedTextLayoutCache;
+    }
+
+    public Drawable getDrawable() {
+        return drawable;
+    }
+
+    public void setDrawable( Drawable drawable ) {
+        this.drawable = drawable;
+        isCacheValid = false;
+    }
+
+    private void invalidateTextLayouts() {
+        mapTextLayouts.clear();
+        isCacheValid = false;
+    }
+
+    /**
+     * Builds layouts, text positions and drawable bounds of all points if they are not already cached.
+     */
+    private void ensureCache() {
+        if ( cachedOrientation != context.getResources().getConfiguration().orientation ) {
+            initialize();
+        }
+        if ( isCacheValid ) {
+            return;
+        }
+        allocateCache();
+        buildCache( 0, points.size(), textPaint );
+        placeLabels();
+        isCacheValid = true;
+    }
+
+    /**
+     * Builds layouts, text positions and drawable bounds of all points using the threads of a given executor. Points
+     * are split in one chunk per available processor, each chunk is measured with its own copy of the text paint.
+     * 
+     * This method can be called from any thread, but the adapter must not be used by another thread before it
+     * returns.
+     * 
+     * @param executor
+     *            the executor used to lay out texts.
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for the layouts.
+     * @throws ExecutionException
+     *             if a layout could not be computed.
+     */
+    void prepare( ExecutorService executor ) throws InterruptedException, ExecutionException {
+        cachedOrientation = context.getResources().getConfiguration().orientation;
+        allocateCache();
+        final int count = points.size();
+        int chunkCount = Math.max( 1, Math.min( count, Runtime.getRuntime().availableProcessors() ) );
+        int chunkSize = ( count + chunkCount - 1 ) / chunkCount;
+        List< Future< Void >> futures = new ArrayList< Future< Void >>( chunkCount );
+        for ( int from = 0; from < count; from += chunkSize ) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min( count, from + chunkSize );
+            futures.add( executor.submit( new Callable< Void >() {
+                @Override
+                public Void call() throws Exception {
+                    buildCache( chunkFrom, chunkTo, new TextPaint( textPaint ) );
+                    return null;
+                }
+            } ) );
+        }
+        for ( Future< Void > future : futures ) {
+            future.get();
+        }
+        placeLabels();
+        isCacheValid = true;
+    }
+
+    /**
+     * Takes a snapshot of the list of points, if any, and allocates the arrays of the cache. Layouts already computed
+     * for the current max text width are reused.
+     */
+    private void allocateCache() {
+        if ( listPoints != null ) {
+            points = new LabeledPointArray( listPoints );
+        }
+        int count = points.size();
+        if ( textXs == null || textXs.length != count ) {
+            textXs = new int[ count ];
+            textYs = new int[ count ];
+            drawableBounds = new int[ count * 4 ];
+        }
+        textLayouts = mapTextLayouts.get( maxTextWidth );
+        isReusingTextLayouts = textLayouts != null && textLayouts.length == count;
+        if ( !isReusingTextLayouts ) {
+            textLayouts = new Layout[ count ];
+            mapTextLayouts.put( maxTextWidth, textLayouts );
+        }
+    }
+
+    private void buildCache( int from, int to, TextPaint paint ) {
+        for ( int position = from; position < to; position++ ) {
+            int x = points.getX( position );
+            int y = points.getY( position );
+            computeDrawableBounds( x, y, position );
+            if ( !isReusingTextLayouts ) {
+                String text = points.getText( position );
+                textLayouts[ position ] = createTextLayout( text == null ? "" : text, paint );
+            }
+            computeTextPoint( x, y, textLayouts[ position ], position );
+        }
+    }
+
+    /**
+     * Moves labels so that they don't overlap each other nor the drawables of other points. Positions computed by
+     * {@link #computeTextPoint(int, int, Layout, int)} are replaced.
+     */
+    private void placeLabels() {
+        if ( !isUsingCollisionAwarePlacement ) {
+            return;
+        }
+        int count = points.size();
+        int[] pointXs = new int[ count ];
+        int[] pointYs = new int[ count ];
+        int[] labelWidths = new int[ count ];
+        int[] labelHeights = new int[ count ];
+        for ( int position = 0; position < count; position++ ) {
+            pointXs[ position ] = points.getX( position );
+            pointYs[ position ] = points.getY( position );
+            labelWidths[ position ] = textLayouts[ position ].getWidth();
+            labelHeights[ position ] = textLayouts[ position ].getHeight();
+        }
+        int cellSize = (int) TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP, PLACEMENT_GRID_CELL_SIZE, context.getResources()
+                .getDisplayMetrics() );
+        final int marginX = drawable.getIntrinsicWidth() / 4 + margin;
+        final int marginY = drawable.getIntrinsicHeight() / 4 + margin;
+        new LabelPlacer( screenWidth, screenHeight, cellSize ).placeLabels( count, pointXs, pointYs, drawableBounds, labelWidths, labelHeights,
+                marginX, marginY, margin, textXs, textYs );
+    }
+
+    private void computeDrawableBounds( int x, int y, int position ) {
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        drawableBounds[ position * 4 ] = x - width / 2;
+        drawableBounds[ position * 4 + 1 ] = y - height / 2;
+        drawableBounds[ position * 4 + 2 ] = x + width / 2;
+        drawableBounds[ position * 4 + 3 ] = y + height / 2;
+    }
+
+    private Layout createTextLayout( String text, TextPaint paint ) {
+        if ( isUsingSharedTextLayoutCache ) {
+            return TextLayoutCache.getInstance().getLayout( text, paint, maxTextWidth );
+        }
+        return TextLayoutCache.createLayout( text, paint, maxTextWidth );
+    }
+
+    private void computeTextPoint( int x, int y, Layout textLayout, int position ) {
+        final int marginX = drawable.getIntrinsicWidth() / 4 + margin;
+        final int marginY = drawable.getIntrinsicHeight() / 4 + margin;
+        textXs[ position ] = x > screenWidth / 2 ? x - marginX - textLayout.getWidth() : x + marginX;
+        textYs[ position ] = y > screenHeight / 2 ? y - marginY - textLayout.getHeight() : y + marginY;
+    }
+
+    /**
+     * Gives the number of points as they were when layouts were last computed. Points added to or removed from the list
+     * of this adapter are only counted once {@link #notifyDataSetChanged()} has been called, like their layouts.
+     */
     @Override
     public int getPointsCount() {
-        return listPoints.size();
+        ensureCache();
+        return points.size();
     }
 
+    /**
+     * Gives the drawable of a point. The same drawable is returned for all points, with the bounds of the given point.
+     */
     @Override
     public Drawable getDrawableAt( int position ) {
-        Point point = listPoints.get( position );
-        int width = drawable.getIntrinsicWidth();
-        int height = drawable.getIntrinsicHeight();
-        drawable.setBounds( point.x - width / 2, point.y - height / 2, point.x + width / 2, point.y + height / 2 );
+        ensureCache();
+        int offset = position * 4;
+        drawable.setBounds( drawableBounds[ offset ], drawableBounds[ offset + 1 ], drawableBounds[ offset + 2 ], drawableBounds[ offset + 3 ] );
         return drawable;
     }
 
     @Override
     public Layout getTextLayoutAt( int position ) {
-        String text = listPoints.get( position ).getText();
-        Rect bounds = new Rect();
-        textPaint.getTextBounds( text, 0, text.length(), bounds );
-
-        int width = Math.min( bounds.width(), maxTextWidth );
-        StaticLayout staticLayout = new StaticLayout( text, textPaint, width, Alignment.ALIGN_CENTER, 1, 0, false );
-        return staticLayout;
+        ensureCache();
+        return textLayouts[ position ];
     }
 
+    /**
+     * Gives the location of the text of a point. The same {@link Point} is returned for all points, it must be read
+     * before the next call.
+     */
     @Override
     public Point getTextPointAt( int position ) {
-        Drawable drawable = getDrawableAt( position );
-        Layout textLayout = getTextLayoutAt( position );
-        Point point = listPoints.get( position );
-        final int marginX = drawable.getIntrinsicWidth() / 4 + margin;
-        final int marginY = drawable.getIntrinsicHeight() / 4 + margin;
-        int textX = point.x > screenWidth / 2 ? point.x - marginX - textLayout.getWidth() : point.x + marginX;
-        int textY = point.y > screenHeight / 2 ? point.y - marginY - textLayout.getHeight() : point.y + marginY;
-        return new Point( textX, textY );
+        ensureCache();
+        textPoint.set( textXs[ position ], textYs[ position ] );
+        return textPoint;
     }
-}
\ No newline at end of file
+}
@@ -1,21 +1,20 @@
 package com.octo.android.robodemo;
 
 import static com.octo.android.robodemo.RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS;
+import static com.octo.android.robodemo.RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS;
 import static com.octo.android.robodemo.RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_ID;
-import static com.octo.android.robodemo.RoboDemo.SHARED_PREFERENCE_NAME;
+import static com.octo.android.robodemo.RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY;
+import static com.octo.android.robodemo.RoboDemo.BUNDLE_KEY_DEMO_ACTIVITY_TOKEN;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import android.app.Activity;
-import android.content.SharedPreferences.Editor;
 import android.content.res.Configuration;
+import android.graphics.Point;
 import android.os.Bundle;
 import android.view.View;
 import android.view.Window;
-import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
-import android.view.animation.AnimationUtils;
 import android.widget.CheckBox;
 
 /**
@@ -23,22 +22,24 @@ import android.widget.CheckBox;
  * will get displayed on top of the activity to demonstrate. They display a list of {@link LabeledPoint} inside a
  * {@link DrawView}.
  * 
- * When subclassing this class, you only have to override {@link #getDrawViewAdapter()} and provide a custom
+ * When subclassing this class, you can override {@link #getDrawViewAdapter()} and provide a custom
  * {@link DrawViewAdapter} that will act as model for the {@link DrawView}, giving it all data to draw both texts and
  * associated drawables at given locations.
  * 
  * To start subclasses of this Activity, proceed as follow :
  * 
  * <pre>
- * boolean neverShowDemoAgain = AbstractDemoActivity.isNeverShowAgain( this, demoActivityId );
+ * RoboDemo.isNeverShowAgain( this, demoActivityId, new DemoStateStore.OnDemoStateLoadedListener() {
+ *     public void onDemoStateLoaded( String demoActivityId, boolean isNeverShowAgain ) {
+ *         if ( !isNeverShowAgain ) {
+ *             //create an ArrayList<LabeledPoints> named arrayListPoints.
  * 
- * if ( !neverShowDemoAgain ) {
- *     //create an ArrayList<LabeledPoints> named arrayListPoints.
- * 
- *     Intent intent = new Intent( this, <Your DemoActivity> );
- *     DemoActivity.prepareDemoActivityIntent( intent, demoActivityId, arrayListPoints );
- *     startActivity( intent );
- * }
+ *             Intent intent = new Intent( MyActivity.this, <Your DemoActivity> );
+ *             RoboDemo.prepareDemoActivityIntent( intent, demoActivityId, arrayListPoints );
+ *             startActivity( intent );
+ *         }
+ *     }
+ * } );
  * </pre>
  * 
  * And don't forget to declare your {@link DemoActivity} subclass in the AndroidManifest file !
@@ -46,17 +47,28 @@ import android.widget.CheckBox;
  * <pre>
  *       <activity
  *             android:name=".activity.MyDemoActivity"
- *             android:screenOrientation="portrait"
+ *             android:configChanges="orientation|screenSize"
  *             android:theme="@style/LayoutDemo" />
  * </pre>
  * 
+ * Declaring configChanges lets the demo survive rotations : points relative to the screen are located again, points
+ * anchored to views are resolved again once the activity to demonstrate has been laid out for the new configuration,
+ * and labels are placed again by the adapter. This requires the activity to demonstrate to handle configuration
+ * changes too, so that its views stay the same. If a point can't be located again, because its view is gone or because
+ * it was given in px, the demo is finished. The demo relocates its own copies of the points, made on the first
+ * configuration change, the points given by the caller are never modified.
+ * 
  * @author sni
  * 
  */
 public abstract class DemoActivity extends Activity {
 
     private ArrayList< LabeledPoint > listPoints = null;
+    // the points given by the caller, until they are copied to be relocated.
+    private ArrayList< LabeledPoint > callerListPoints;
     private String demoActivityId;
+    private long delayBetweenPoints;
+    private PreparedDemo preparedDemo;
 
     private DrawView drawView;
     private CheckBox checkBox;
@@ -73,12 +85,40 @@ public abstract class DemoActivity extends Activity {
 
         Bundle bundle = savedInstanceState != null ? savedInstanceState : getIntent().getExtras();
 
-        listPoints = bundle.getParcelableArrayList( BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS );
         demoActivityId = bundle.getString( BUNDLE_KEY_DEMO_ACTIVITY_ID );
+        String demoToken = bundle.getString( BUNDLE_KEY_DEMO_ACTIVITY_TOKEN );
+        delayBetweenPoints = bundle.getLong( BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS );
+        // the demo survives configuration changes that recreate this activity, otherwise it is taken from the registry.
+        DemoRegistry.Entry demoEntry = (DemoRegistry.Entry) getLastNonConfigurationInstance();
+        if ( demoEntry == null ) {
+            demoEntry = DemoRegistry.take( demoToken );
+        }
+        if ( demoEntry != null ) {
+            listPoints = demoEntry.getListPoints();
+            callerListPoints = listPoints;
+            preparedDemo = demoEntry.getPreparedDemo();
+        } else {
+            // the registry doesn't survive process death, use the points saved in the bundle.
+            LabeledPointArray labeledPointArray = bundle.getParcelable( BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY );
+            if ( labeledPointArray != null ) {
+                listPoints = labeledPointArray.toArrayList();
+            } else {
+                listPoints = bundle.getParcelableArrayList( BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS );
+            }
+            if ( listPoints == null ) {
+                // the demo expired or the process died before this activity could save its points, it can't be displayed.
+                finish();
+                return;
+            }
+        }
         drawView = (DrawView) findViewById( R.id.drawView_move_content_demo );
         checkBox = (CheckBox) findViewById( R.id.checkbox_demo_never_again );
 
-        drawView.setAnimationListener( new DrawViewAnimationListener() );
+        if ( delayBetweenPoints > 0 ) {
+            drawView.setDelayBetweenPoints( delayBetweenPoints );
+        }
+        drawView.setAnimationListener( new DemoButtonsAnimator( findViewById( R.id.layout_demo_buttons ) ) );
+        drawView.setOnPointClickListener( new DrawViewPointClickListener() );
         drawView.setDrawViewAdapter( getDrawViewAdapter() );
     }
 
@@ -89,29 +129,111 @@ public abstract class DemoActivity extends Activity {
     @Override
     public void onConfigurationChanged( Configuration newConfig ) {
         super.onConfigurationChanged( newConfig );
-        // as most probably a layout change will change the underlying activity, just finish
-        // current demo activity's points are not relevant anymore.
-        finish();
+        if ( listPoints == callerListPoints ) {
+            // points are relocated in copies, the points of the caller are left unchanged.
+            listPoints = LabeledPoint.copyList( listPoints );
+        }
+        View anchorRootView = null;
+        Point screenSize = new Point();
+        LabeledPoint.getScreenSize( getWindowManager().getDefaultDisplay(), screenSize );
+        for ( LabeledPoint point : listPoints ) {
+            if ( point.isAnchored() ) {
+                View anchorView = point.getAnchorView();
+                if ( anchorView == null || anchorView.getWindowToken() == null ) {
+                    // the underlying activity has been recreated, current points are not relevant anymore.
+                    finish();
+                    return;
+                }
+                anchorRootView = anchorView.getRootView();
+            } else if ( !point.relocateInScreen( screenSize.x, screenSize.y ) ) {
+                // points in px can't follow the new layout of the underlying activity.
+                finish();
+                return;
+            }
+        }
+        final Configuration configuration = newConfig;
+        if ( anchorRootView == null ) {
+            onPointsRelocated( configuration );
+            return;
+        }
+        new AnchorResolver( anchorRootView, listPoints, new RoboDemo.OnAnchorsResolvedListener() {
+            @Override
+            public void onAnchorsResolved( List< LabeledPoint > listPoints ) {
+                if ( !isFinishing() ) {
+                    onPointsRelocated( configuration );
+                }
+            }
+        } ).start();
+    }
+
+    /**
+     * Called once all points have been located for a new configuration. Lets the adapter place labels again and redraws
+     * the {@link DrawView}. Subclasses using their own adapter can override this method to update it.
+     * 
+     * @param newConfig
+     *            the new configuration.
+     */
+    protected void onPointsRelocated( Configuration newConfig ) {
+        DrawViewAdapter drawViewAdapter = drawView.getDrawViewAdapter();
+        if ( drawViewAdapter instanceof DefaultDrawViewAdapter ) {
+            DefaultDrawViewAdapter defaultDrawViewAdapter = (DefaultDrawViewAdapter) drawViewAdapter;
+            if ( callerListPoints != null && defaultDrawViewAdapter.getListPoints() == callerListPoints ) {
+                // the adapter holds the points of the caller, not the relocated copies.
+                defaultDrawViewAdapter.setMovedListPoints( listPoints );
+            }
+            defaultDrawViewAdapter.onConfigurationChanged( newConfig );
+        } else if ( drawViewAdapter instanceof PagedDrawViewAdapter ) {
+            ( (PagedDrawViewAdapter) drawViewAdapter ).onConfigurationChanged( newConfig );
+        }
+        callerListPoints = null;
+        drawView.notifyDataSetChanged();
     }
 
     /**
-     * Must be overriden by any custom DemoActivity to provide a DrawViewAdapter to the {@link DrawView}.
+     * Provides a DrawViewAdapter to the {@link DrawView}. Can be overriden by any custom DemoActivity to draw points its
+     * own way. By default, the adapter of the demo prepared in background using
+     * {@link RoboDemo#prepareDemoActivityIntent(android.content.Intent, String, PreparedDemo)} is used if its
+     * preparation is finished, otherwise a {@link DefaultDrawViewAdapter} of the points is created.
      * 
      * @return an adapter that will be passed to the {@link DrawView}.
      */
-    public abstract DrawViewAdapter getDrawViewAdapter();
+    public DrawViewAdapter getDrawViewAdapter() {
+        DrawViewAdapter drawViewAdapter = getPreparedDrawViewAdapter();
+        return drawViewAdapter != null ? drawViewAdapter : new DefaultDrawViewAdapter( this, listPoints );
+    }
+
+    /**
+     * @return the adapter of the demo prepared in background, or null if the demo has not been prepared, if its
+     *         preparation is not finished or if it failed. Never waits for the preparation.
+     */
+    protected DefaultDrawViewAdapter getPreparedDrawViewAdapter() {
+        if ( preparedDemo == null || !preparedDemo.isPrepared() ) {
+            return null;
+        }
+        return preparedDemo.getDrawViewAdapter();
+    }
 
+    /**
+     * @return the points of this demo. They are the points given to start the demo, replaced by relocated copies the
+     *         first time the configuration changes.
+     */
     protected List< LabeledPoint > getListPoints() {
         return listPoints;
     }
 
     @Override
     protected void onSaveInstanceState( Bundle outState ) {
-        outState.putParcelableArrayList( BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS, listPoints );
+        outState.putParcelable( BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY, new LabeledPointArray( listPoints ) );
         outState.putString( BUNDLE_KEY_DEMO_ACTIVITY_ID, demoActivityId );
+        outState.putLong( BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS, delayBetweenPoints );
         super.onSaveInstanceState( outState );
     }
 
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return new DemoRegistry.Entry( listPoints, preparedDemo );
+    }
+
     public void onTap( View view ) {
         if ( drawView.isAnimationTerminated() ) {
             drawView.resetAnimation();
@@ -120,75 +242,39 @@ public abstract class DemoActivity extends Activity {
         }
     }
 
+    /**
+     * Called when a visible {@link LabeledPoint} is tapped. By default, taps on points are handled like taps anywhere
+     * else on the {@link DrawView}, see {@link #onTap(View)}. Subclasses can override this method to jump to a point,
+     * using {@link DrawView#showPoint(int)}, or to dismiss the demo.
+     * 
+     * @param position
+     *            the index of the tapped point.
+     * @return true if the tap has been consumed, false to handle it like any other tap on the {@link DrawView}.
+     */
+    protected boolean onPointTap( int position ) {
+        return false;
+    }
+
     public void checkNeverShowAgain( View view ) {
         checkBox.setChecked( !checkBox.isChecked() );
     }
 
     public void finish( View view ) {
-        Editor editor = getSharedPreferences( SHARED_PREFERENCE_NAME, MODE_PRIVATE ).edit();
-        if ( checkBox.isChecked() ) {
-            editor = editor.putBoolean( demoActivityId, true );
-        } else {
-            editor = editor.remove( demoActivityId );
-        }
-        editor.commit();
+        DemoStateStore.getInstance( this ).setNeverShowAgain( demoActivityId, checkBox.isChecked() );
         finish();
     }
 
-    private void setButtonsVisible( boolean visible ) {
-        final View layoutButtons = findViewById( R.id.layout_demo_buttons );
-        int animationResId = visible ? android.R.anim.fade_in : android.R.anim.fade_out;
-        Animation animation = AnimationUtils.loadAnimation( DemoActivity.this, animationResId );
-        animation.setDuration( getResources().getInteger( android.R.integer.config_shortAnimTime ) );
-        animation.setAnimationListener( new ButtonsAnimationListener( visible, layoutButtons ) );
-        layoutButtons.startAnimation( animation );
-    }
-
     /**
-     * Animate the buttons at the bottom of the screen.
+     * Forwards taps on points to {@link DemoActivity#onPointTap(int)}.
      * 
      * @author sni
      * 
      */
-    private final class DrawViewAnimationListener implements AnimationListener {
-
-        @Override
-        public void onAnimationStart( Animation animation ) {
-            setButtonsVisible( false );
-        }
-
-        @Override
-        public void onAnimationRepeat( Animation animation ) {
-
-        }
-
-        @Override
-        public void onAnimationEnd( Animation animation ) {
-            setButtonsVisible( true );
-        }
-    }
-
-    private final class ButtonsAnimationListener implements AnimationListener {
-        private final boolean visibleAtEnd;
-        private final View layoutButtons;
-
-        private ButtonsAnimationListener( boolean visibleAtEnd, View layoutButtons ) {
-            this.visibleAtEnd = visibleAtEnd;
-            this.layoutButtons = layoutButtons;
-        }
-
-        @Override
-        public void onAnimationStart( Animation animation ) {
-            layoutButtons.setVisibility( View.VISIBLE );
-        }
-
-        @Override
-        public void onAnimationRepeat( Animation animation ) {
-        }
+    private final class DrawViewPointClickListener implements DrawView.OnPointClickListener {
 
         @Override
-        public void onAnimationEnd( Animation animation ) {
-            layoutButtons.setVisibility( visibleAtEnd ? View.VISIBLE : View.GONE );
+        public boolean onPointClick( DrawView drawView, int position ) {
+            return onPointTap( position );
         }
     }
 }
@@ -0,0 +1,69 @@
+package com.octo.android.robodemo;
+
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Animation.AnimationListener;
+import android.view.animation.AnimationUtils;
+
+/**
+ * Animate the buttons at the bottom of the screen : they fade out when the animation of a {@link DrawView} starts and
+ * fade in when it ends. Used by both {@link DemoActivity} and {@link DemoOverlay}.
+ * 
+ * @author sni
+ * 
+ */
+final class DemoButtonsAnimator implements AnimationListener {
+
+    private final View layoutButtons;
+
+    DemoButtonsAnimator( View layoutButtons ) {
+        this.layoutButtons = layoutButtons;
+    }
+
+    @Override
+    public void onAnimationStart( Animation animation ) {
+        setButtonsVisible( false );
+    }
+
+    @Override
+    public void onAnimationRepeat( Animation animation ) {
+
+    }
+
+    @Override
+    public void onAnimationEnd( Animation animation ) {
+        setButtonsVisible( true );
+    }
+
+    private void setButtonsVisible( boolean visible ) {
+        int animationResId = visible ? android.R.anim.fade_in : android.R.anim.fade_out;
+        Animation animation = AnimationUtils.loadAnimation( layoutButtons.getContext(), animationResId );
+        animation.setDuration( layoutButtons.getResources().getInteger( android.R.integer.config_shortAnimTime ) );
+        animation.setAnimationListener( new ButtonsAnimationListener( visible, layoutButtons ) );
+        layoutButtons.startAnimation( animation );
+    }
+
+    private static final class ButtonsAnimationListener implements AnimationListener {
+        private final boolean visibleAtEnd;
+        private final View layoutButtons;
+
+        private ButtonsAnimationListener( boolean visibleAtEnd, View layoutButtons ) {
+            this.visibleAtEnd = visibleAtEnd;
+            this.layoutButtons = layoutButtons;
+        }
+
+        @Override
+        public void onAnimationStart( Animation animation ) {
+            layoutButtons.setVisibility( View.VISIBLE );
+        }
+
+        @Override
+        public void onAnimationRepeat( Animation animation ) {
+        }
+
+        @Override
+        public void onAnimationEnd( Animation animation ) {
+            layoutButtons.setVisibility( visibleAtEnd ? View.VISIBLE : View.GONE );
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.octo.android.robodemo;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+
+/**
+ * Displays a demo directly on top of the content of an activity, without starting a {@link DemoActivity}. The
+ * {@link DrawView} and its buttons are added to the decor view of the activity and removed when the user presses the
+ * OK button, or when {@link #dismiss()} is called.
+ * 
+ * This avoids launching an Activity, creating a new window and running a transition before the demo is visible. The
+ * 'never show again' checkbox works the same as in {@link DemoActivity}.
+ * 
+ * To display an overlay, proceed as follow :
+ * 
+ * <pre>
+ * RoboDemo.isNeverShowAgain( this, demoActivityId, new DemoStateStore.OnDemoStateLoadedListener() {
+ *     public void onDemoStateLoaded( String demoActivityId, boolean isNeverShowAgain ) {
+ *         if ( !isNeverShowAgain ) {
+ *             //create an ArrayList<LabeledPoints> named arrayListPoints.
+ * 
+ *             DemoOverlay demoOverlay = RoboDemo.showDemoOverlay( MyActivity.this, demoActivityId, new DefaultDrawViewAdapter(
+ *                     MyActivity.this, arrayListPoints ) );
+ *         }
+ *     }
+ * } );
+ * </pre>
+ * 
+ * @author sni
+ * 
+ */
+public class DemoOverlay {
+
+    private final Activity activity;
+    private final String demoActivityId;
+    private final ViewGroup decorView;
+    private final View overlayView;
+    private final DrawView drawView;
+    private final CheckBox checkBox;
+
+    DemoOverlay( Activity activity, String demoActivityId, DrawViewAdapter drawViewAdapter ) {
+        this.activity = activity;
+        this.demoActivityId = demoActivityId;
+        this.decorView = (ViewGroup) activity.getWindow().getDecorView();
+        // click handlers declared in the layout target the DemoActivity, they are all replaced below.
+        this.overlayView = LayoutInflater.from( activity ).inflate( R.layout.activity_demo, decorView, false );
+        this.drawView = (DrawView) overlayView.findViewById( R.id.drawView_move_content_demo );
+        this.checkBox = (CheckBox) overlayView.findViewById( R.id.checkbox_demo_never_again );
+
+        overlayView.setClickable( true );
+        drawView.setOnClickListener( new OnClickListener() {
+            @Override
+            public void onClick( View v ) {
+                if ( drawView.isAnimationTerminated() ) {
+                    drawView.resetAnimation();
+                } else {
+                    drawView.terminateAnimation();
+                }
+            }
+        } );
+        overlayView.findViewById( R.id.textview_demo_never_again ).setOnClickListener( new OnClickListener() {
+            @Override
+            public void onClick( View v ) {
+                checkBox.setChecked( !checkBox.isChecked() );
+            }
+        } );
+        overlayView.findViewById( R.id.button_demo_finish ).setOnClickListener( new OnClickListener() {
+            @Override
+            public void onClick( View v ) {
+                DemoStateStore.getInstance( DemoOverlay.this.activity ).setNeverShowAgain( DemoOverlay.this.demoActivityId, checkBox.isChecked() );
+                dismiss();
+            }
+        } );
+        drawView.setAnimationListener( new DemoButtonsAnimator( overlayView.findViewById( R.id.layout_demo_buttons ) ) );
+        drawView.setDrawViewAdapter( drawViewAdapter );
+    }
+
+    void show() {
+        decorView.addView( overlayView, new ViewGroup.LayoutParams( ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT ) );
+    }
+
+    /**
+     * Removes the demo from the activity. The 'never show again' state is not modified.
+     */
+    public void dismiss() {
+        if ( isShowing() ) {
+            decorView.removeView( overlayView );
+        }
+    }
+
+    /**
+     * @return true if the demo is still displayed on top of the activity.
+     */
+    public boolean isShowing() {
+        return overlayView.getParent() == decorView;
+    }
+
+    public DrawView getDrawView() {
+        return drawView;
+    }
+
+    public String getDemoActivityId() {
+        return demoActivityId;
+    }
+}
@@ -0,0 +1,238 @@
+package com.octo.android.robodemo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+
+/**
+ * An ordered sequence of demos, typically spread over several screens of an application. The queue knows which demos
+ * are still unseen : demos already started from this queue and demos set never to display again, see
+ * {@link DemoStateStore}, are skipped.
+ * 
+ * While a demo is displayed, the next unseen demo is prepared in background, see
+ * {@link RoboDemo#prepareDemo(Context, ArrayList, Drawable, TextPaint, RoboDemo.OnDemoPreparedListener)}, so that its
+ * first frame is drawn from ready layouts when it is started.
+ * 
+ * <pre>
+ * demoQueue = new DemoQueue( this );
+ * demoQueue.add( "demo-main", MainDemoActivity.class, listMainPoints );
+ * demoQueue.add( "demo-details", DetailsDemoActivity.class, listDetailsPoints );
+ * ...
+ * // on each screen, when it is ready.
+ * demoQueue.startNextDemo( this );
+ * </pre>
+ * 
+ * Points anchored to views, see {@link LabeledPoint#anchoredTo(android.view.View, float, float, String)}, are resolved
+ * when their demo is started, their views must be displayed by the activity starting the demo then. Demos are prepared
+ * from copies of their points, so that resolving anchors doesn't race with the preparation. Texts laid out in
+ * background are kept, only positions are computed again from the resolved points.
+ * 
+ * This class must be used on the UI thread. Demos are started and prepared once the state of demos is loaded, see
+ * {@link DemoStateStore#whenLoaded(DemoStateStore.OnDemoStatesLoadedListener)}, the UI thread never waits for it.
+ * 
+ * @author sni
+ * 
+ */
+public final class DemoQueue {
+
+    private final Context context;
+    private final Drawable drawable;
+    private final TextPaint textPaint;
+    private final List< String > listDemoIds = new ArrayList< String >();
+    private final Map< String, Class< ? extends DemoActivity >> mapDemoActivityClasses = new HashMap< String, Class< ? extends DemoActivity >>();
+    private final Map< String, ArrayList< LabeledPoint >> mapDemoPoints = new HashMap< String, ArrayList< LabeledPoint >>();
+    private final Set< String > setStartedDemoIds = new HashSet< String >();
+
+    // the next demo, being prepared in background, if any.
+    private String prefetchedDemoId;
+    private PreparedDemo prefetchedDemo;
+
+    /**
+     * Creates a queue of demos drawn with the default drawable and text paint of {@link DefaultDrawViewAdapter}.
+     * 
+     * @param context
+     *            any context of the application.
+     */
+    public DemoQueue( Context context ) {
+        this( context, context.getResources().getDrawable( R.drawable.ic_lockscreen_handle_pressed ), DefaultDrawViewAdapter
+                .createDefaultTextPaint( context ) );
+    }
+
+    /**
+     * @param context
+     *            any context of the application.
+     * @param drawable
+     *            the drawable used to illustrate points.
+     * @param textPaint
+     *            the paint used to render the texts of points.
+     */
+    public DemoQueue( Context context, Drawable drawable, TextPaint textPaint ) {
+        this.context = context.getApplicationContext();
+        this.drawable = drawable;
+        this.textPaint = textPaint;
+        // the state of demos is needed to know which demo comes next.
+        DemoStateStore.getInstance( context );
+    }
+
+    /**
+     * Adds a demo at the end of this queue. The list of points must not be modified afterwards.
+     * 
+     * @param demoActivityId
+     *            the id that will be used to store the information about the 'never show again' checkbox.
+     * @param demoActivityClass
+     *            the {@link DemoActivity} displaying the demo.
+     * @param listPoints
+     *            the points of the demo.
+     * @return this queue.
+     * @throws IllegalArgumentException
+     *             if a demo with the same id has already been added.
+     */
+    public DemoQueue add( String demoActivityId, Class< ? extends DemoActivity > demoActivityClass, ArrayList< LabeledPoint > listPoints ) {
+        if ( mapDemoPoints.containsKey( demoActivityId ) ) {
+            throw new IllegalArgumentException( "Duplicate demo " + demoActivityId );
+        }
+        listDemoIds.add( demoActivityId );
+        mapDemoActivityClasses.put( demoActivityId, demoActivityClass );
+        mapDemoPoints.put( demoActivityId, listPoints );
+        return this;
+    }
+
+    /**
+     * Waits for the state of demos to be loaded, it should be called once {@link DemoStateStore#isLoaded()} returns
+     * true.
+     * 
+     * @return the ids of demos that have not been started from this queue and have not been set never to display
+     *         again, in the order they have been added.
+     */
+    public List< String > getUnseenDemoIds() {
+        List< String > listCandidateIds = new ArrayList< String >( listDemoIds.size() );
+        for ( String demoActivityId : listDemoIds ) {
+            if ( !setStartedDemoIds.contains( demoActivityId ) ) {
+                listCandidateIds.add( demoActivityId );
+            }
+        }
+        return DemoStateStore.getInstance( context ).getUnseenDemoIds( listCandidateIds );
+    }
+
+    /**
+     * Waits for the state of demos to be loaded, it should be called once {@link DemoStateStore#isLoaded()} returns
+     * true.
+     * 
+     * @return the id of the demo that {@link #startNextDemo(Activity)} will start, or null if all demos have been seen.
+     */
+    public String getNextDemoId() {
+        List< String > listUnseenIds = getUnseenDemoIds();
+        return listUnseenIds.isEmpty() ? null : listUnseenIds.get( 0 );
+    }
+
+    /**
+     * Starts preparing the next unseen demo in background, if it is not already. This is done automatically when a demo
+     * is started, calling this method allows to prepare the first demo early.
+     */
+    public void prefetchNextDemo() {
+        DemoStateStore.getInstance( context ).whenLoaded( new DemoStateStore.OnDemoStatesLoadedListener() {
+            @Override
+            public void onDemoStatesLoaded( DemoStateStore demoStateStore ) {
+                prefetchNextDemoNow();
+            }
+        } );
+    }
+
+    private void prefetchNextDemoNow() {
+        String nextDemoId = getNextDemoId();
+        if ( nextDemoId == null || nextDemoId.equals( prefetchedDemoId ) ) {
+            return;
+        }
+        prefetchedDemoId = nextDemoId;
+        // the preparation reads its own copies while anchors of the points may be resolved on the UI thread.
+        prefetchedDemo = RoboDemo.prepareDemo( context, LabeledPoint.copyList( mapDemoPoints.get( nextDemoId ) ), drawable, textPaint, null );
+    }
+
+    /**
+     * Starts the next unseen demo on top of an activity, once its anchored points are resolved, and starts preparing
+     * the demo after it. If the state of demos is not loaded yet, this is done once it is.
+     * 
+     * @param caller
+     *            the activity to demonstrate.
+     * @return false if all demos have been seen, true if a demo is started or if the state of demos is still loading.
+     */
+    public boolean startNextDemo( final Activity caller ) {
+        DemoStateStore demoStateStore = DemoStateStore.getInstance( context );
+        if ( !demoStateStore.isLoaded() ) {
+            demoStateStore.whenLoaded( new DemoStateStore.OnDemoStatesLoadedListener() {
+                @Override
+                public void onDemoStatesLoaded( DemoStateStore demoStateStore ) {
+                    startNextDemoNow( caller );
+                }
+            } );
+            return true;
+        }
+        return startNextDemoNow( caller );
+    }
+
+    private boolean startNextDemoNow( final Activity caller ) {
+        final String demoActivityId = getNextDemoId();
+        if ( demoActivityId == null ) {
+            return false;
+        }
+        setStartedDemoIds.add( demoActivityId );
+        final ArrayList< LabeledPoint > listPoints = mapDemoPoints.get( demoActivityId );
+        final PreparedDemo preparedDemo = demoActivityId.equals( prefetchedDemoId ) ? prefetchedDemo : null;
+        prefetchedDemoId = null;
+        prefetchedDemo = null;
+
+        if ( hasAnchoredPoints( listPoints ) ) {
+            RoboDemo.resolveAnchors( caller, listPoints, new RoboDemo.OnAnchorsResolvedListener() {
+                @Override
+                public void onAnchorsResolved( List< LabeledPoint > listResolvedPoints ) {
+                    startDemo( caller, demoActivityId, listPoints, preparedDemo, true );
+                }
+            } );
+        } else {
+            startDemo( caller, demoActivityId, listPoints, preparedDemo, false );
+        }
+        return true;
+    }
+
+    private void startDemo( Activity caller, String demoActivityId, ArrayList< LabeledPoint > listPoints, PreparedDemo preparedDemo,
+            boolean hasMovedPoints ) {
+        if ( caller.isFinishing() ) {
+            return;
+        }
+        Intent intent = new Intent( caller, mapDemoActivityClasses.get( demoActivityId ) );
+        if ( preparedDemo != null && ( !hasMovedPoints || preparedDemo.isPrepared() ) ) {
+            if ( hasMovedPoints ) {
+                // layouts are ready, only positions must be computed again from resolved anchors.
+                DefaultDrawViewAdapter drawViewAdapter = preparedDemo.getDrawViewAdapter();
+                if ( drawViewAdapter != null ) {
+                    drawViewAdapter.setMovedListPoints( listPoints );
+                }
+            }
+            // the demo shows the resolved points, not the copies it has been prepared with.
+            RoboDemo.prepareDemoActivityIntent( intent, demoActivityId, new DemoRegistry.Entry( listPoints, preparedDemo ) );
+        } else {
+            // the preparation can't be used while it runs with unresolved points, the demo lays itself out.
+            RoboDemo.prepareDemoActivityIntent( intent, demoActivityId, listPoints );
+        }
+        caller.startActivity( intent );
+        prefetchNextDemo();
+    }
+
+    private static boolean hasAnchoredPoints( List< LabeledPoint > listPoints ) {
+        for ( int index = 0, count = listPoints.size(); index < count; index++ ) {
+            if ( listPoints.get( index ).isAnchored() ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
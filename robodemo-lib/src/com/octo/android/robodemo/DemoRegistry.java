@@ -0,0 +1,125 @@
+package com.octo.android.robodemo;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.SystemClock;
+
+/**
+ * An in-process registry of demos waiting to be displayed by a {@link DemoActivity}. The caller and the
+ * {@link DemoActivity} always live in the same process, so only a short token is passed in the intent and the
+ * {@link DemoActivity} takes the live points and prepared adapter from this registry, without marshalling them.
+ * 
+ * A demo is removed from the registry when its {@link DemoActivity} takes it. Demos that are not taken within
+ * {@link #EXPIRY_DELAY}, typically because their intent has never been started, are removed when another demo is
+ * registered, so that the registry doesn't hold their points for the lifetime of the process.
+ * 
+ * The registry doesn't survive process death. A {@link DemoActivity} recreated after process death reads the points it
+ * saved in its instance state, a {@link DemoActivity} started after its demo expired or after process death finishes
+ * immediately.
+ * 
+ * @author sni
+ * 
+ */
+final class DemoRegistry {
+
+    /** Delay after which a demo that has not been taken is removed from the registry, in ms. */
+    static final long EXPIRY_DELAY = 60 * 1000;
+
+    private static final AtomicInteger TOKEN_COUNTER = new AtomicInteger();
+
+    // in registration order, so that expired demos come first.
+    private static final Map< String, Registration > MAP_REGISTRATIONS = new LinkedHashMap< String, Registration >();
+
+    private DemoRegistry() {
+    }
+
+    /**
+     * Registers a demo, and removes demos that have expired.
+     * 
+     * @param demoActivityId
+     *            the id of the demo.
+     * @param entry
+     *            the demo to register.
+     * @return the token to use to take the demo.
+     */
+    static String register( String demoActivityId, Entry entry ) {
+        String token = demoActivityId + '#' + TOKEN_COUNTER.incrementAndGet();
+        long now = SystemClock.uptimeMillis();
+        synchronized ( MAP_REGISTRATIONS ) {
+            removeExpiredRegistrations( now );
+            MAP_REGISTRATIONS.put( token, new Registration( entry, now + EXPIRY_DELAY ) );
+        }
+        return token;
+    }
+
+    /**
+     * Removes a demo from the registry and returns it. A demo can only be taken once.
+     * 
+     * @param token
+     *            the token returned by {@link #register(String, Entry)}.
+     * @return the demo registered under token, or null if it has already been taken, if it has been removed after it
+     *         expired or if the process has been restarted since it has been registered.
+     */
+    static Entry take( String token ) {
+        if ( token == null ) {
+            return null;
+        }
+        synchronized ( MAP_REGISTRATIONS ) {
+            Registration registration = MAP_REGISTRATIONS.remove( token );
+            return registration == null ? null : registration.entry;
+        }
+    }
+
+    private static void removeExpiredRegistrations( long now ) {
+        for ( Iterator< Registration > iterator = MAP_REGISTRATIONS.values().iterator(); iterator.hasNext(); ) {
+            if ( iterator.next().expiryTime > now ) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A demo registered until it is taken or expires.
+     */
+    private static final class Registration {
+        private final Entry entry;
+        private final long expiryTime;
+
+        Registration( Entry entry, long expiryTime ) {
+            this.entry = entry;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    /**
+     * A demo held by the registry.
+     * 
+     * @author sni
+     * 
+     */
+    static final class Entry {
+        private final ArrayList< LabeledPoint > listPoints;
+        private final PreparedDemo preparedDemo;
+
+        Entry( ArrayList< LabeledPoint > listPoints, PreparedDemo preparedDemo ) {
+            this.listPoints = listPoints;
+            this.preparedDemo = preparedDemo;
+        }
+
+        ArrayList< LabeledPoint > getListPoints() {
+            return listPoints;
+        }
+
+        /**
+         * @return the demo prepared in background, or null if the demo has not been prepared.
+         */
+        PreparedDemo getPreparedDemo() {
+            return preparedDemo;
+        }
+    }
+}
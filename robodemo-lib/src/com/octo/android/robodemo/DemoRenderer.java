@@ -0,0 +1,521 @@
+package com.octo.android.robodemo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Canvas.EdgeType;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.PorterDuff.Mode;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+
+/**
+ * Draws the points of a {@link DrawViewAdapter}, as they are at a given step of the animation, on any {@link Canvas}.
+ * This is the rendering of a {@link DrawView} without the view : it can draw into a {@link Bitmap} to pre-render the
+ * final frame of a demo, to build thumbnails, or to check rendering without a window.
+ * 
+ * Points are drawn in the coordinates given by the adapter, i.e. screen coordinates. Callers translate or scale the
+ * canvas to draw another area.
+ * 
+ * A renderer is not thread safe, but it can be used on any thread, one at a time. As {@link DrawViewAdapter} may reuse
+ * the same drawables for all points, an adapter must not be rendered on a worker thread while it is displayed by a
+ * {@link DrawView}.
+ * 
+ * @author sni
+ * 
+ */
+public class DemoRenderer {
+
+    private static final int DRAW_UNDER_TEXT_CORNER_RADIUS = 7;
+
+    /**
+     * Extra space around the bounds of a point, in px, to account for antialiasing and text shadows.
+     */
+    private static final int POINT_BOUNDS_SLACK = 4;
+
+    private DrawViewAdapter drawViewAdapter;
+
+    private boolean isShowingAllPointsAtTheEndOfAnimation = true;
+    private boolean isDrawingOnePointAtATime = false;
+
+    private Paint underTextPaint;
+    private boolean isClearPorterDuffXfermodeEnabled = true;
+
+    // scratch state reused on every frame to keep rendering allocation free.
+    private final Paint clearPaint = new Paint();
+    private final RectF underTextRect = new RectF();
+    private final Rect pointBounds = new Rect();
+
+    // bitmap of rasterized markers, used to draw all markers after all texts.
+    private boolean isUsingMarkerAtlas = false;
+    private MarkerAtlas markerAtlas;
+    private int[] visiblePositions = new int[ 0 ];
+
+    // bitmaps of rasterized labels, null unless label sprites are used.
+    private LabelSpriteCache labelSpriteCache;
+    private final Paint spritePaint = new Paint( Paint.FILTER_BITMAP_FLAG );
+
+    // rendering metrics of the view using this renderer, null unless they are enabled.
+    private RenderMetrics renderMetrics;
+
+    public DemoRenderer( Context context ) {
+        underTextPaint = new Paint();
+        underTextPaint.setColor( context.getResources().getColor( android.R.color.darker_gray ) );
+        underTextPaint.setAlpha( 150 );
+        clearPaint.setXfermode( new PorterDuffXfermode( Mode.CLEAR ) );
+    }
+
+    public DemoRenderer( Context context, DrawViewAdapter drawViewAdapter ) {
+        this( context );
+        this.drawViewAdapter = drawViewAdapter;
+    }
+
+    public void setDrawViewAdapter( DrawViewAdapter drawViewAdapter ) {
+        this.drawViewAdapter = drawViewAdapter;
+        releaseMarkerAtlas();
+    }
+
+    public DrawViewAdapter getDrawViewAdapter() {
+        return drawViewAdapter;
+    }
+
+    /**
+     * @see DrawView#setShowingAllPointsAtTheEndOfAnimation(boolean)
+     */
+    public void setShowingAllPointsAtTheEndOfAnimation( boolean isShowingAllPointsAtTheEndOfAnimation ) {
+        this.isShowingAllPointsAtTheEndOfAnimation = isShowingAllPointsAtTheEndOfAnimation;
+    }
+
+    public boolean isShowingAllPointsAtTheEndOfAnimation() {
+        return isShowingAllPointsAtTheEndOfAnimation;
+    }
+
+    /**
+     * @see DrawView#setDrawingOnePointAtATime(boolean)
+     */
+    public void setDrawingOnePointAtATime( boolean isDrawingOnePointAtATime ) {
+        this.isDrawingOnePointAtATime = isDrawingOnePointAtATime;
+    }
+
+    public boolean isDrawingOnePointAtATime() {
+        return isDrawingOnePointAtATime;
+    }
+
+    public void setIsClearPorterDuffXfermodeEnabled( boolean isClearPorterDuffXfermodeEnabled ) {
+        this.isClearPorterDuffXfermodeEnabled = isClearPorterDuffXfermodeEnabled;
+    }
+
+    public boolean isClearPorterDuffXfermodeEnabled() {
+        return isClearPorterDuffXfermodeEnabled;
+    }
+
+    public void setUnderTextPaint( Paint underTextPaint ) {
+        this.underTextPaint = underTextPaint;
+        if ( labelSpriteCache != null ) {
+            labelSpriteCache.evictAll();
+        }
+    }
+
+    public Paint getUnderTextPaint() {
+        return underTextPaint;
+    }
+
+    /**
+     * @see DrawView#setUsingMarkerAtlas(boolean)
+     */
+    public void setUsingMarkerAtlas( boolean isUsingMarkerAtlas ) {
+        this.isUsingMarkerAtlas = isUsingMarkerAtlas;
+        releaseMarkerAtlas();
+    }
+
+    public boolean isUsingMarkerAtlas() {
+        return isUsingMarkerAtlas;
+    }
+
+    /**
+     * @see DrawView#setUsingLabelSprites(boolean)
+     */
+    public void setUsingLabelSprites( boolean isUsingLabelSprites ) {
+        if ( isUsingLabelSprites == ( labelSpriteCache != null ) ) {
+            return;
+        }
+        labelSpriteCache = isUsingLabelSprites ? new LabelSpriteCache( LabelSpriteCache.DEFAULT_MAX_SIZE ) : null;
+    }
+
+    public boolean isUsingLabelSprites() {
+        return labelSpriteCache != null;
+    }
+
+    void setRenderMetrics( RenderMetrics renderMetrics ) {
+        this.renderMetrics = renderMetrics;
+    }
+
+    /**
+     * @param animationStep
+     *            the index of the point the animation has reached.
+     * @return true if the animation is over at this step.
+     */
+    public boolean isAnimationTerminated( int animationStep ) {
+        return animationStep >= drawViewAdapter.getPointsCount() - 1;
+    }
+
+    /**
+     * @param animationStep
+     *            the index of the point the animation has reached.
+     * @return the index of the first point to draw at this step.
+     */
+    public int getFirstVisiblePoint( int animationStep ) {
+        if ( isAnimationTerminated( animationStep ) ) {
+            return isShowingAllPointsAtTheEndOfAnimation ? 0 : animationStep;
+        }
+        return isDrawingOnePointAtATime ? animationStep : 0;
+    }
+
+    /**
+     * @param animationStep
+     *            the index of the point the animation has reached.
+     * @return the index of the last point to draw at this step.
+     */
+    public int getLastVisiblePoint( int animationStep ) {
+        if ( isAnimationTerminated( animationStep ) && isShowingAllPointsAtTheEndOfAnimation ) {
+            return drawViewAdapter.getPointsCount() - 1;
+        }
+        return Math.min( animationStep, drawViewAdapter.getPointsCount() - 1 );
+    }
+
+    /**
+     * Draws the points that are visible at a given step of the animation. Points outside of the clip of the canvas are
+     * skipped.
+     * 
+     * @param canvas
+     *            the canvas on which to draw the points.
+     * @param animationStep
+     *            the index of the point the animation has reached. Use {@link DrawViewAdapter#getPointsCount()} - 1 to
+     *            draw the final frame.
+     * @return the number of points actually drawn.
+     */
+    public int draw( Canvas canvas, int animationStep ) {
+        return drawPoints( canvas, getFirstVisiblePoint( animationStep ), getLastVisiblePoint( animationStep ), true );
+    }
+
+    /**
+     * Draws an area of the screen, as it is at a given step of the animation, into a new bitmap. This method can be
+     * called from a worker thread.
+     * 
+     * @param animationStep
+     *            the index of the point the animation has reached.
+     * @param area
+     *            the area to draw, in screen coordinates.
+     * @param scale
+     *            the scale of the bitmap relative to the screen, less than 1 to create a thumbnail.
+     * @return a bitmap of the size of area multiplied by scale, transparent where no point is drawn.
+     */
+    public Bitmap drawToBitmap( int animationStep, Rect area, float scale ) {
+        int width = Math.max( 1, Math.round( area.width() * scale ) );
+        int height = Math.max( 1, Math.round( area.height() * scale ) );
+        Bitmap bitmap = Bitmap.createBitmap( width, height, Bitmap.Config.ARGB_8888 );
+        Canvas canvas = new Canvas( bitmap );
+        canvas.scale( scale, scale );
+        canvas.translate( -area.left, -area.top );
+        draw( canvas, animationStep );
+        return bitmap;
+    }
+
+    /**
+     * Frees the bitmaps held by this renderer. They will be created again if the renderer is used afterwards.
+     */
+    public void release() {
+        releaseMarkerAtlas();
+        if ( labelSpriteCache != null ) {
+            labelSpriteCache.evictAll();
+        }
+    }
+
+    /**
+     * Draws a range of points.
+     * 
+     * @param canvas
+     *            the canvas on which to draw the points.
+     * @param from
+     *            the index of the first point to draw.
+     * @param to
+     *            the index of the last point to draw.
+     * @param isCulling
+     *            if true, points outside of the clip of canvas are skipped.
+     * @return the number of points drawn.
+     */
+    int drawPoints( Canvas canvas, int from, int to, boolean isCulling ) {
+        if ( isUsingMarkerAtlas ) {
+            return drawPointsWithMarkerAtlas( from, to, canvas, isCulling );
+        }
+        int drawnPointsCount = 0;
+        for ( int index = from; index <= to; index++ ) {
+            if ( isCulling ) {
+                getPointBounds( index, pointBounds );
+                if ( canvas.quickReject( pointBounds.left, pointBounds.top, pointBounds.right, pointBounds.bottom, EdgeType.AA ) ) {
+                    continue;
+                }
+            }
+            drawPoint( index, canvas );
+            drawnPointsCount++;
+        }
+        return drawnPointsCount;
+    }
+
+    /**
+     * Punches the holes of a range of points, without drawing them.
+     * 
+     * @param canvas
+     *            the canvas on which to clear the holes.
+     * @param from
+     *            the index of the first point.
+     * @param to
+     *            the index of the last point.
+     */
+    void drawHoles( Canvas canvas, int from, int to ) {
+        for ( int index = from; index <= to; index++ ) {
+            Drawable drawable = getDrawableAt( index );
+            if ( drawable != null ) {
+                doUseClearPorterDuffXfermode( canvas, drawable );
+            }
+        }
+    }
+
+    /**
+     * Draws a range of points in three passes : texts, then holes under markers, then markers from the
+     * {@link MarkerAtlas}.
+     */
+    private int drawPointsWithMarkerAtlas( int from, int to, Canvas canvas, boolean isCulling ) {
+        if ( visiblePositions.length < to - from + 1 ) {
+            visiblePositions = new int[ to - from + 1 ];
+        }
+        int visibleCount = 0;
+        for ( int index = from; index <= to; index++ ) {
+            if ( isCulling ) {
+                getPointBounds( index, pointBounds );
+                if ( canvas.quickReject( pointBounds.left, pointBounds.top, pointBounds.right, pointBounds.bottom, EdgeType.AA ) ) {
+                    continue;
+                }
+            }
+            visiblePositions[ visibleCount++ ] = index;
+            drawText( index, canvas );
+        }
+
+        if ( isClearPorterDuffXfermodeEnabled ) {
+            for ( int visibleIndex = 0; visibleIndex < visibleCount; visibleIndex++ ) {
+                Drawable drawable = getDrawableAt( visiblePositions[ visibleIndex ] );
+                if ( drawable != null ) {
+                    doUseClearPorterDuffXfermode( canvas, drawable );
+                }
+            }
+        }
+
+        if ( markerAtlas == null ) {
+            markerAtlas = new MarkerAtlas();
+        }
+        for ( int visibleIndex = 0; visibleIndex < visibleCount; visibleIndex++ ) {
+            Drawable drawable = getDrawableAt( visiblePositions[ visibleIndex ] );
+            if ( drawable != null && !markerAtlas.draw( canvas, drawable ) ) {
+                drawable.draw( canvas );
+            }
+            if ( drawable != null ) {
+                countCanvasOps( 1 );
+            }
+        }
+        return visibleCount;
+    }
+
+    private Drawable getDrawableAt( int position ) {
+        long adapterCallStart = startAdapterCall();
+        Drawable drawable = drawViewAdapter.getDrawableAt( position );
+        endAdapterCall( adapterCallStart, 1 );
+        return drawable;
+    }
+
+    private long startAdapterCall() {
+        return renderMetrics == null ? 0 : System.nanoTime();
+    }
+
+    private void endAdapterCall( long adapterCallStart, int callCount ) {
+        if ( renderMetrics != null ) {
+            renderMetrics.addAdapterTime( System.nanoTime() - adapterCallStart, callCount );
+        }
+    }
+
+    private void countCanvasOps( int count ) {
+        if ( renderMetrics != null ) {
+            renderMetrics.addCanvasOps( count );
+        }
+    }
+
+    private void releaseMarkerAtlas() {
+        if ( markerAtlas != null ) {
+            markerAtlas.release();
+            markerAtlas = null;
+        }
+    }
+
+    /**
+     * Computes the area covered by the point at a given position : the bounds of its drawable, of its text and of the
+     * surface drawn under its text.
+     * 
+     * @param position
+     *            the index of the point.
+     * @param outBounds
+     *            the rect that will receive the bounds of the point.
+     */
+    protected void getPointBounds( int position, Rect outBounds ) {
+        long adapterCallStart = startAdapterCall();
+        Point textPoint = drawViewAdapter.getTextPointAt( position );
+        Layout layout = drawViewAdapter.getTextLayoutAt( position );
+        Drawable drawable = drawViewAdapter.getDrawableAt( position );
+        endAdapterCall( adapterCallStart, 3 );
+        if ( textPoint == null || layout == null ) {
+            // the point has no text.
+            if ( drawable == null ) {
+                outBounds.setEmpty();
+                return;
+            }
+            outBounds.set( drawable.getBounds() );
+        } else {
+            int margin = DRAW_UNDER_TEXT_CORNER_RADIUS;
+            outBounds.set( textPoint.x - margin, textPoint.y - margin, textPoint.x + layout.getWidth() + margin * 2, textPoint.y + layout.getHeight()
+                    + margin * 2 );
+            if ( drawable != null ) {
+                outBounds.union( drawable.getBounds() );
+            }
+        }
+        outBounds.inset( -POINT_BOUNDS_SLACK, -POINT_BOUNDS_SLACK );
+    }
+
+    /**
+     * Draw the point at the position specified by {@link DrawViewAdapter#getTextPointAt(int)}
+     * 
+     * @param position
+     *            the index of the point to draw.
+     * @param canvas
+     *            the canvas on which to draw the point at position.
+     */
+    protected void drawPoint( int position, Canvas canvas ) {
+        drawText( position, canvas );
+        drawDrawable( position, canvas );
+    }
+
+    /**
+     * Draw the text of the point at a given position specified by {@link DrawViewAdapter#getTextPointAt(int)}
+     * 
+     * @param position
+     *            the index of the point to draw.
+     * @param canvas
+     *            the canvas on which to draw the point at position.
+     */
+    protected void drawText( int position, Canvas canvas ) {
+        long adapterCallStart = startAdapterCall();
+        Point point = drawViewAdapter.getTextPointAt( position );
+        Layout layout = drawViewAdapter.getTextLayoutAt( position );
+        endAdapterCall( adapterCallStart, 2 );
+        if ( point == null || layout == null ) {
+            return;
+        }
+        if ( labelSpriteCache != null && drawLabelSprite( canvas, layout, point.x, point.y ) ) {
+            return;
+        }
+        canvas.save();
+        canvas.translate( point.x, point.y );
+        doDrawUnderTextPaint( canvas, layout );
+        layout.draw( canvas );
+        countCanvasOps( 1 );
+        canvas.restore();
+    }
+
+    /**
+     * Draws a label from its sprite, rasterizing it first if it is not cached.
+     * 
+     * @return true if the label has been drawn, false if it is too large to be cached and must be drawn directly.
+     */
+    private boolean drawLabelSprite( Canvas canvas, Layout layout, int x, int y ) {
+        // the sprite covers the surface under the text, plus some space for antialiasing and shadows.
+        int origin = DRAW_UNDER_TEXT_CORNER_RADIUS + POINT_BOUNDS_SLACK;
+        Bitmap sprite = labelSpriteCache.get( layout, underTextPaint );
+        if ( sprite == null ) {
+            int width = layout.getWidth() + DRAW_UNDER_TEXT_CORNER_RADIUS * 3 + POINT_BOUNDS_SLACK * 2;
+            int height = layout.getHeight() + DRAW_UNDER_TEXT_CORNER_RADIUS * 3 + POINT_BOUNDS_SLACK * 2;
+            if ( !labelSpriteCache.isCacheable( width, height ) ) {
+                return false;
+            }
+            sprite = Bitmap.createBitmap( width, height, Bitmap.Config.ARGB_8888 );
+            Canvas spriteCanvas = new Canvas( sprite );
+            spriteCanvas.translate( origin, origin );
+            doDrawUnderTextPaint( spriteCanvas, layout );
+            layout.draw( spriteCanvas );
+            labelSpriteCache.put( layout, underTextPaint, sprite );
+            countCanvasOps( 1 );
+            if ( renderMetrics != null ) {
+                renderMetrics.addBitmapAllocation();
+            }
+        }
+        canvas.drawBitmap( sprite, x - origin, y - origin, spritePaint );
+        countCanvasOps( 1 );
+        return true;
+    }
+
+    /**
+     * Draw some surface under text. This method is called just before drawing each {@link LabeledPoint}'s text.
+     * 
+     * @param canvas
+     *            the canvas in which we draw.
+     * @param layout
+     *            the {@link Layout} associated to a {@link LabeledPoint}.
+     */
+    protected void doDrawUnderTextPaint( Canvas canvas, Layout layout ) {
+        if ( underTextPaint != null ) {
+            int margin = DRAW_UNDER_TEXT_CORNER_RADIUS;
+            underTextRect.set( -margin, -margin, layout.getWidth() + margin * 2, layout.getHeight() + margin * 2 );
+            canvas.drawRoundRect( underTextRect, 2 * margin, 2 * margin, underTextPaint );
+            countCanvasOps( 1 );
+        }
+    }
+
+    /**
+     * Draw the drawable of the point at a given position.
+     * 
+     * @param position
+     *            the index of the point to draw.
+     * @param canvas
+     *            the canvas on which to draw the point at position.
+     */
+    protected void drawDrawable( int position, Canvas canvas ) {
+        Drawable drawable = getDrawableAt( position );
+        if ( drawable == null ) {
+            return;
+        }
+        doUseClearPorterDuffXfermode( canvas, drawable );
+        drawable.draw( canvas );
+        countCanvasOps( 1 );
+    }
+
+    /**
+     * if PorterDuff xfermode is active, this method can be used to remove the background inside the {@link Drawable}
+     * associated to a {@link LabeledPoint}. This method is called just before drawing each {@link LabeledPoint}'s
+     * drawable.
+     * 
+     * @param canvas
+     *            the canvas on which to draw the point at position.
+     * @param drawable
+     *            the {@link Drawable} that is going to be drawn.
+     * @see #setIsClearPorterDuffXfermodeEnabled(boolean)
+     */
+    protected void doUseClearPorterDuffXfermode( Canvas canvas, Drawable drawable ) {
+        if ( isClearPorterDuffXfermodeEnabled ) {
+            int cx = drawable.getBounds().centerX();
+            int cy = drawable.getBounds().centerY();
+            int radius = drawable.getIntrinsicWidth() / 2 - 3;
+            canvas.drawCircle( cx, cy, radius, clearPaint );
+            countCanvasOps( 1 );
+        }
+    }
+}
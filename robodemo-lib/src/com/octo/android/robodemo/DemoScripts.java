@@ -0,0 +1,171 @@
+package com.octo.android.robodemo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import android.app.Activity;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+
+import com.octo.android.robodemo.core.DemoScript;
+
+/**
+ * Opens {@link DemoScript} assets and turns their demos into {@link LabeledPoint}.
+ * 
+ * @author sni
+ * 
+ */
+final class DemoScripts {
+
+    private static final String TAG = "DemoScripts";
+
+    private DemoScripts() {
+    }
+
+    /**
+     * Opens a script asset. Uncompressed assets are memory mapped, compressed assets can't be mapped and are read in
+     * memory, a warning is logged then.
+     * 
+     * @param assetManager
+     *            the assets of the application.
+     * @param assetName
+     *            the name of the asset holding the compiled script.
+     * @return the script.
+     * @throws IOException
+     *             if the asset could not be read or doesn't hold a script.
+     */
+    static DemoScript open( AssetManager assetManager, String assetName ) throws IOException {
+        ByteBuffer buffer;
+        try {
+            AssetFileDescriptor assetFileDescriptor = assetManager.openFd( assetName );
+            FileInputStream inputStream = assetFileDescriptor.createInputStream();
+            try {
+                // the mapping stays valid once the file is closed.
+                buffer = inputStream.getChannel().map( FileChannel.MapMode.READ_ONLY, assetFileDescriptor.getStartOffset(),
+                        assetFileDescriptor.getLength() );
+            } finally {
+                inputStream.close();
+            }
+        } catch ( FileNotFoundException e ) {
+            // the asset is compressed in the apk.
+            Log.w( TAG, "Demo script " + assetName + " is compressed in the apk, it is read in memory instead of being mapped."
+                    + " Store it uncompressed, for instance with aapt -0 rds" );
+            buffer = ByteBuffer.wrap( readFully( assetManager.open( assetName ) ) );
+        }
+        try {
+            return DemoScript.read( buffer );
+        } catch ( IllegalArgumentException e ) {
+            throw new IOException( assetName + " is not a demo script: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Opens a script asset in background, see {@link #open(AssetManager, String)}. This method returns immediately.
+     * 
+     * @param assetManager
+     *            the assets of the application.
+     * @param assetName
+     *            the name of the asset holding the compiled script.
+     * @param onDemoScriptOpenedListener
+     *            the listener notified on the UI thread once the script is opened, or could not be.
+     */
+    static void open( final AssetManager assetManager, final String assetName, final RoboDemo.OnDemoScriptOpenedListener onDemoScriptOpenedListener ) {
+        final Handler handler = new Handler( Looper.getMainLooper() );
+        BackgroundExecutors.getPreparationExecutor().execute( new Runnable() {
+            @Override
+            public void run() {
+                DemoScript demoScript = null;
+                try {
+                    demoScript = open( assetManager, assetName );
+                } catch ( IOException e ) {
+                    Log.e( TAG, "Unable to open demo script " + assetName, e );
+                }
+                final DemoScript openedDemoScript = demoScript;
+                handler.post( new Runnable() {
+                    @Override
+                    public void run() {
+                        onDemoScriptOpenedListener.onDemoScriptOpened( assetName, openedDemoScript );
+                    }
+                } );
+            }
+        } );
+    }
+
+    private static byte[] readFully( InputStream inputStream ) throws IOException {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] chunk = new byte[ 8192 ];
+            int readCount;
+            while ( ( readCount = inputStream.read( chunk ) ) != -1 ) {
+                outputStream.write( chunk, 0, readCount );
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Creates the points of a demo. Labels that are resources are resolved in the package of the activity, anchored
+     * points are created by {@link LabeledPoint#anchoredTo(View, float, float, String)} and must be resolved afterwards.
+     * Points anchored to a view that can't be found in the activity are skipped.
+     * 
+     * @param activity
+     *            the activity to demonstrate.
+     * @param demoScript
+     *            the script holding the demo.
+     * @param demo
+     *            the index of the demo in the script.
+     * @return the points of the demo.
+     */
+    static ArrayList< LabeledPoint > createPoints( Activity activity, DemoScript demoScript, int demo ) {
+        Resources resources = activity.getResources();
+        String packageName = activity.getPackageName();
+        int pointCount = demoScript.getPointCount( demo );
+        ArrayList< LabeledPoint > listPoints = new ArrayList< LabeledPoint >( pointCount );
+        for ( int point = 0; point < pointCount; point++ ) {
+            String text = demoScript.getLabel( demo, point );
+            if ( demoScript.isLabelResource( demo, point ) ) {
+                int textId = resources.getIdentifier( text, "string", packageName );
+                if ( textId == 0 ) {
+                    Log.w( TAG, "Unknown string resource " + text + " in demo " + demoScript.getDemoName( demo ) );
+                } else {
+                    text = resources.getString( textId );
+                }
+            }
+            int x = demoScript.getPointX( demo, point );
+            int y = demoScript.getPointY( demo, point );
+            switch ( demoScript.getPointKind( demo, point ) ) {
+                case DemoScript.POINT_IN_SCREEN:
+                    // percents of the screen are given to LabeledPoint as ratios.
+                    listPoints.add( new LabeledPoint( activity, x / ( 100f * DemoScript.PERCENT_SCALE ), y / ( 100f * DemoScript.PERCENT_SCALE ), text ) );
+                    break;
+                case DemoScript.POINT_ANCHORED:
+                    String anchorName = demoScript.getAnchorName( demo, point );
+                    int viewId = resources.getIdentifier( anchorName, "id", packageName );
+                    View view = viewId == 0 ? null : activity.findViewById( viewId );
+                    if ( view == null ) {
+                        Log.w( TAG, "Unknown anchor view " + anchorName + " in demo " + demoScript.getDemoName( demo ) );
+                    } else {
+                        listPoints.add( LabeledPoint.anchoredTo( view, (float) x / DemoScript.PERCENT_SCALE, (float) y / DemoScript.PERCENT_SCALE, text ) );
+                    }
+                    break;
+                default:
+                    listPoints.add( new LabeledPoint( x, y, text ) );
+                    break;
+            }
+        }
+        return listPoints;
+    }
+}
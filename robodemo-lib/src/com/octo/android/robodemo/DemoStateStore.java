@@ -0,0 +1,315 @@
+package com.octo.android.robodemo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Stores which demos must never be shown again. The state of all demos is loaded once, in background, into memory.
+ * Lookups don't do any I/O once it is loaded, and changes are written in background, in batches.
+ * 
+ * Lookups wait for the state to be loaded. On the UI thread, use
+ * {@link #isNeverShowAgain(String, OnDemoStateLoadedListener)} or {@link #whenLoaded(OnDemoStatesLoadedListener)},
+ * which never wait.
+ * 
+ * The state is stored in a dedicated {@link SharedPreferences} file, {@link #SHARED_PREFERENCE_NAME}. Demos marked in
+ * the file used by previous versions, {@link RoboDemo#SHARED_PREFERENCE_NAME}, are still considered as never to show
+ * again.
+ * 
+ * @author sni
+ * 
+ */
+public final class DemoStateStore {
+
+    public static final String SHARED_PREFERENCE_NAME = "robodemo_state";
+
+    private static DemoStateStore instance;
+
+    private final Context context;
+    private final CountDownLatch loadLatch = new CountDownLatch( 1 );
+    private final Set< String > setNeverShowAgainIds = new HashSet< String >();
+    private final Map< String, Boolean > mapPendingChanges = new HashMap< String, Boolean >();
+    private boolean isWritePending = false;
+    private SharedPreferences preferences;
+    private SharedPreferences legacyPreferences;
+
+    private DemoStateStore( Context context ) {
+        this.context = context;
+    }
+
+    /**
+     * Gives the store of the application. The first call starts loading the state of demos in background, it can be
+     * done early, for instance in {@link android.app.Application#onCreate()}, so that the state is ready when demos are
+     * about to be shown.
+     * 
+     * @param context
+     *            any context of the application.
+     * @return the store of the application.
+     */
+    public static synchronized DemoStateStore getInstance( Context context ) {
+        if ( instance == null ) {
+            instance = new DemoStateStore( context.getApplicationContext() );
+            BackgroundExecutors.getStorageExecutor().execute( new Runnable() {
+                @Override
+                public void run() {
+                    instance.load();
+                }
+            } );
+        }
+        return instance;
+    }
+
+    private void load() {
+        SharedPreferences loadedPreferences = context.getSharedPreferences( SHARED_PREFERENCE_NAME, Context.MODE_PRIVATE );
+        SharedPreferences loadedLegacyPreferences = context.getSharedPreferences( RoboDemo.SHARED_PREFERENCE_NAME, Context.MODE_PRIVATE );
+        // forces the legacy file to be read now, later lookups will only hit memory.
+        loadedLegacyPreferences.contains( SHARED_PREFERENCE_NAME );
+        synchronized ( this ) {
+            for ( Map.Entry< String, ? > entry : loadedPreferences.getAll().entrySet() ) {
+                if ( Boolean.TRUE.equals( entry.getValue() ) ) {
+                    setNeverShowAgainIds.add( entry.getKey() );
+                }
+            }
+            preferences = loadedPreferences;
+            legacyPreferences = loadedLegacyPreferences;
+        }
+        loadLatch.countDown();
+    }
+
+    private void awaitLoaded() {
+        boolean isInterrupted = false;
+        while ( true ) {
+            try {
+                loadLatch.await();
+                break;
+            } catch ( InterruptedException e ) {
+                isInterrupted = true;
+            }
+        }
+        if ( isInterrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return true if the state of demos has been loaded, lookups won't wait anymore.
+     */
+    public boolean isLoaded() {
+        return loadLatch.getCount() == 0;
+    }
+
+    /**
+     * Notifies a listener once the state of demos is loaded. If it is already loaded, the listener is notified
+     * immediately. This method must be called on the UI thread.
+     * 
+     * @param onDemoStatesLoadedListener
+     *            the listener notified, on the UI thread, once the state of demos is loaded.
+     */
+    public void whenLoaded( final OnDemoStatesLoadedListener onDemoStatesLoadedListener ) {
+        if ( isLoaded() ) {
+            onDemoStatesLoadedListener.onDemoStatesLoaded( this );
+            return;
+        }
+        BackgroundExecutors.getStorageExecutor().execute( new Runnable() {
+            @Override
+            public void run() {
+                awaitLoaded();
+                new Handler( Looper.getMainLooper() ).post( new Runnable() {
+                    @Override
+                    public void run() {
+                        onDemoStatesLoadedListener.onDemoStatesLoaded( DemoStateStore.this );
+                    }
+                } );
+            }
+        } );
+    }
+
+    /**
+     * Gives the state of a demo without waiting for the state of demos to be loaded. This method must be called on the
+     * UI thread.
+     * 
+     * @param demoActivityId
+     *            the id of a demo.
+     * @param onDemoStateLoadedListener
+     *            the listener notified, on the UI thread, of the state of the demo. It is notified immediately if the
+     *            state of demos is already loaded.
+     */
+    public void isNeverShowAgain( final String demoActivityId, final OnDemoStateLoadedListener onDemoStateLoadedListener ) {
+        whenLoaded( new OnDemoStatesLoadedListener() {
+            @Override
+            public void onDemoStatesLoaded( DemoStateStore demoStateStore ) {
+                onDemoStateLoadedListener.onDemoStateLoaded( demoActivityId, isNeverShowAgain( demoActivityId ) );
+            }
+        } );
+    }
+
+    /**
+     * Gives the state of a demo. Waits for the state of demos to be loaded, this method should be called from a
+     * background thread, or on the UI thread once {@link #isLoaded()} returns true.
+     * 
+     * @param demoActivityId
+     *            the id of a demo.
+     * @return true if the demo must never be shown again.
+     */
+    public boolean isNeverShowAgain( String demoActivityId ) {
+        awaitLoaded();
+        synchronized ( this ) {
+            return isNeverShowAgainLocked( demoActivityId );
+        }
+    }
+
+    /**
+     * Gives the demos, among a collection of demos, that can still be shown. Waits for the state of demos to be loaded,
+     * this method should be called from a background thread, or on the UI thread once {@link #isLoaded()} returns true.
+     * 
+     * @param demoActivityIds
+     *            the ids of demos.
+     * @return the ids, in iteration order, of the demos that are not marked as never to show again.
+     */
+    public List< String > getUnseenDemoIds( Collection< String > demoActivityIds ) {
+        awaitLoaded();
+        List< String > listUnseenIds = new ArrayList< String >( demoActivityIds.size() );
+        synchronized ( this ) {
+            for ( String demoActivityId : demoActivityIds ) {
+                if ( !isNeverShowAgainLocked( demoActivityId ) ) {
+                    listUnseenIds.add( demoActivityId );
+                }
+            }
+        }
+        return listUnseenIds;
+    }
+
+    private boolean isNeverShowAgainLocked( String demoActivityId ) {
+        Boolean pendingChange = mapPendingChanges.get( demoActivityId );
+        if ( pendingChange != null ) {
+            return pendingChange;
+        }
+        return setNeverShowAgainIds.contains( demoActivityId ) || legacyPreferences.getBoolean( demoActivityId, false );
+    }
+
+    /**
+     * Marks a demo as never to show again, or to show again. The change is visible immediately and written in
+     * background.
+     * 
+     * @param demoActivityId
+     *            the id of a demo.
+     * @param isNeverShowAgain
+     *            if true, the demo will never be shown again.
+     */
+    public void setNeverShowAgain( String demoActivityId, boolean isNeverShowAgain ) {
+        synchronized ( this ) {
+            mapPendingChanges.put( demoActivityId, isNeverShowAgain );
+            if ( isWritePending ) {
+                return;
+            }
+            isWritePending = true;
+        }
+        BackgroundExecutors.getStorageExecutor().execute( new Runnable() {
+            @Override
+            public void run() {
+                writePendingChanges();
+            }
+        } );
+    }
+
+    /**
+     * Writes all changes made since last write in one commit. Changes stay pending in memory until they are written,
+     * changes made while writing are written by another batch.
+     */
+    private void writePendingChanges() {
+        awaitLoaded();
+        Map< String, Boolean > mapChanges;
+        synchronized ( this ) {
+            mapChanges = new HashMap< String, Boolean >( mapPendingChanges );
+        }
+
+        Editor editor = preferences.edit();
+        Editor legacyEditor = null;
+        for ( Map.Entry< String, Boolean > change : mapChanges.entrySet() ) {
+            if ( change.getValue() ) {
+                editor.putBoolean( change.getKey(), true );
+            } else {
+                editor.remove( change.getKey() );
+                if ( legacyPreferences.contains( change.getKey() ) ) {
+                    legacyEditor = legacyEditor == null ? legacyPreferences.edit() : legacyEditor;
+                    legacyEditor.remove( change.getKey() );
+                }
+            }
+        }
+        editor.commit();
+        if ( legacyEditor != null ) {
+            legacyEditor.commit();
+        }
+
+        boolean hasMoreChanges;
+        synchronized ( this ) {
+            for ( Map.Entry< String, Boolean > change : mapChanges.entrySet() ) {
+                if ( change.getValue() ) {
+                    setNeverShowAgainIds.add( change.getKey() );
+                } else {
+                    setNeverShowAgainIds.remove( change.getKey() );
+                }
+                if ( change.getValue().equals( mapPendingChanges.get( change.getKey() ) ) ) {
+                    mapPendingChanges.remove( change.getKey() );
+                }
+            }
+            hasMoreChanges = !mapPendingChanges.isEmpty();
+            isWritePending = hasMoreChanges;
+        }
+        if ( hasMoreChanges ) {
+            BackgroundExecutors.getStorageExecutor().execute( new Runnable() {
+                @Override
+                public void run() {
+                    writePendingChanges();
+                }
+            } );
+        }
+    }
+
+    /**
+     * Listener notified when the state of all demos has been loaded.
+     * 
+     * @see DemoStateStore#whenLoaded(OnDemoStatesLoadedListener)
+     * @author sni
+     * 
+     */
+    public interface OnDemoStatesLoadedListener {
+        /**
+         * Called on the UI thread once the state of all demos is in memory.
+         * 
+         * @param demoStateStore
+         *            the store whose lookups won't wait anymore.
+         */
+        void onDemoStatesLoaded( DemoStateStore demoStateStore );
+    }
+
+    /**
+     * Listener notified of the state of a demo.
+     * 
+     * @see DemoStateStore#isNeverShowAgain(String, OnDemoStateLoadedListener)
+     * @author sni
+     * 
+     */
+    public interface OnDemoStateLoadedListener {
+        /**
+         * Called on the UI thread once the state of a demo is known.
+         * 
+         * @param demoActivityId
+         *            the id of the demo.
+         * @param isNeverShowAgain
+         *            true if the demo must never be shown again.
+         */
+        void onDemoStateLoaded( String demoActivityId, boolean isNeverShowAgain );
+    }
+}
@@ -1,134 +1,384 @@
 package com.octo.android.robodemo;
 
-import java.lang.ref.WeakReference;
-
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Point;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.PorterDuffXfermode;
-import android.graphics.RectF;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.os.Handler;
-import android.os.Message;
 import android.text.Layout;
 import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.animation.Animation.AnimationListener;
 
+import com.octo.android.robodemo.core.SpatialGrid;
+
 /**
  * This view will draw all {@link LabeledPoint} on its surface. It uses a {@link DrawViewAdapter } to get the content to
  * draw.
  * 
+ * Points are expressed in screen coordinates. They are drawn at the right place even if this view doesn't start at the
+ * top left corner of the screen.
+ * 
  * @author sni
  * 
  */
 public class DrawView extends View {
 
-    private static final int DRAW_UNDER_TEXT_CORNER_RADIUS = 7;
-
     /**
      * The defaut delay between points in animation in ms.
      */
     private static final long DELAY_BETWEEN_POINTS = 2000;
 
+    /**
+     * The size of the cells used to index points for hit testing, in dp.
+     */
+    private static final float HIT_GRID_CELL_SIZE = 48;
+
     private DrawViewAdapter drawViewAdapter;
 
-    private AnimatorHandler handler;
+    private final AnimationScheduler animationScheduler = new AnimationScheduler( this, DELAY_BETWEEN_POINTS );
     private int currentPointPositionToDisplay = 0;
     private long delayBetweenPoints = DELAY_BETWEEN_POINTS;
-    private boolean isShowingAllPointsAtTheEndOfAnimation = true;
-    private boolean isDrawingOnePointAtATime = false;
 
     private AnimationListener animationListener;
 
-    private Paint underTextPaint;
-
-    private boolean isClearPorterDuffXfermodeEnabled = true;
+    // draws the points, its hooks are forwarded to the protected methods of this view.
+    private final ViewRenderer renderer = new ViewRenderer( getContext() );
+
+    // scratch state reused on every frame to keep rendering allocation free.
+    private final Rect pointBounds = new Rect();
+    private final Rect dirtyRect = new Rect();
+
+    // offscreen layer of points already revealed, used when drawing a point and all its predecessors.
+    private boolean isUsingAccumulationLayer = false;
+    private Bitmap accumulationBitmap;
+    private Canvas accumulationCanvas;
+    private Bitmap holesBitmap;
+    private Canvas holesCanvas;
+    private int accumulatedPointsCount = 0;
+    private final Paint holesPaint = new Paint();
+
+    // index of point bounds used to find which point is touched.
+    private OnPointClickListener onPointClickListener;
+    private SpatialGrid hitGrid;
+    private int hitGridFirstPoint = 0;
+    private int hitGridPointsEnd = 0;
+    private int touchedPointPosition = -1;
+
+    // rendering metrics, null unless they are enabled.
+    private RenderMetrics renderMetrics;
+
+    // location of this view on screen, points are translated by this offset.
+    private final int[] screenLocation = new int[ 2 ];
+    private int screenOffsetX = 0;
+    private int screenOffsetY = 0;
 
     public DrawView( Context context, AttributeSet attrs, int defStyle ) {
         super( context, attrs, defStyle );
-        initializeHandler();
-        initUnderTextPaint();
+        initHolesPaint();
     }
 
     public DrawView( Context context, AttributeSet attrs ) {
         super( context, attrs );
-        initializeHandler();
-        initUnderTextPaint();
+        initHolesPaint();
     }
 
     public DrawView( Context context ) {
         super( context );
-        initializeHandler();
-        initUnderTextPaint();
+        initHolesPaint();
     }
 
     @Override
     public void onDraw( Canvas canvas ) {
         super.onDraw( canvas );
 
-        if ( isAnimationTerminated() ) {
-            if ( isShowingAllPointsAtTheEndOfAnimation ) {
-                for ( int index = 0; index < drawViewAdapter.getPointsCount(); index++ ) {
-                    drawPoint( index, canvas );
-                }
-            } else {
-                drawPoint( currentPointPositionToDisplay, canvas );
-            }
-        } else {
-            if ( currentPointPositionToDisplay >= 0 ) {
-                if ( isDrawingOnePointAtATime ) {
-                    drawPoint( currentPointPositionToDisplay, canvas );
-                } else {
-                    for ( int index = 0; index <= currentPointPositionToDisplay; index++ ) {
-                        drawPoint( index, canvas );
-                    }
-                }
-            }
+        if ( renderMetrics == null ) {
+            drawVisiblePoints( canvas );
+            return;
+        }
+        long frameStart = System.nanoTime();
+        renderMetrics.beginFrame();
+        int drawnPointsCount = drawVisiblePoints( canvas );
+        renderMetrics.endFrame( System.nanoTime() - frameStart, drawnPointsCount );
+    }
+
+    /**
+     * Draws all visible points.
+     * 
+     * @param canvas
+     *            the canvas on which to draw the points.
+     * @return the number of points actually drawn.
+     */
+    private int drawVisiblePoints( Canvas canvas ) {
+        int lastVisiblePoint = getLastVisiblePoint();
+        if ( isUsingAccumulationLayer && getFirstVisiblePoint() == 0 && getWidth() > 0 && getHeight() > 0 ) {
+            return drawAccumulationLayer( lastVisiblePoint, canvas );
+        }
+        canvas.save();
+        canvas.translate( -screenOffsetX, -screenOffsetY );
+        int drawnPointsCount = renderer.draw( canvas, currentPointPositionToDisplay );
+        canvas.restore();
+        return drawnPointsCount;
+    }
+
+    @Override
+    protected void onLayout( boolean changed, int left, int top, int right, int bottom ) {
+        super.onLayout( changed, left, top, right, bottom );
+        getLocationOnScreen( screenLocation );
+        if ( screenLocation[ 0 ] != screenOffsetX || screenLocation[ 1 ] != screenOffsetY ) {
+            screenOffsetX = screenLocation[ 0 ];
+            screenOffsetY = screenLocation[ 1 ];
+            releaseAccumulationLayer();
+            hitGrid = null;
         }
     }
 
     public void setIsClearPorterDuffXfermodeEnabled( boolean isClearPorterDuffXfermodeEnabled ) {
-        this.isClearPorterDuffXfermodeEnabled = isClearPorterDuffXfermodeEnabled;
+        renderer.setIsClearPorterDuffXfermodeEnabled( isClearPorterDuffXfermodeEnabled );
+        releaseAccumulationLayer();
     }
 
     public void setUnderTextPaint( Paint underTextPaint ) {
-        this.underTextPaint = underTextPaint;
+        renderer.setUnderTextPaint( underTextPaint );
+        releaseAccumulationLayer();
+    }
+
+    /**
+     * Whether or not points already revealed are kept in an offscreen bitmap when a point and all its predecessors are
+     * displayed. Each animation step will then only draw the newly revealed point, at the cost of two bitmaps of the
+     * size of this view.
+     * 
+     * @param isUsingAccumulationLayer
+     *            if true, revealed points are accumulated in an offscreen bitmap. If false, all visible points are
+     *            drawn on every frame.
+     */
+    public void setUsingAccumulationLayer( boolean isUsingAccumulationLayer ) {
+        this.isUsingAccumulationLayer = isUsingAccumulationLayer;
+        releaseAccumulationLayer();
+    }
+
+    public boolean isUsingAccumulationLayer() {
+        return isUsingAccumulationLayer;
+    }
+
+    /**
+     * Whether or not markers are drawn from a bitmap atlas. Each distinct drawable is rasterized once into the atlas,
+     * then, on each frame, the texts of all visible points are drawn first and all their markers are drawn afterwards
+     * from the atlas. This reduces state changes when there are many markers, or many different marker drawables, but
+     * markers are then always drawn above texts.
+     * 
+     * {@link #drawPoint(int, Canvas)} is not called when the atlas is used. Drawables whose state changes while they are
+     * displayed should not be drawn from the atlas.
+     * 
+     * @param isUsingMarkerAtlas
+     *            if true, markers are drawn from a bitmap atlas. If false, each point is drawn by
+     *            {@link #drawPoint(int, Canvas)}.
+     */
+    public void setUsingMarkerAtlas( boolean isUsingMarkerAtlas ) {
+        renderer.setUsingMarkerAtlas( isUsingMarkerAtlas );
+        releaseAccumulationLayer();
+    }
+
+    public boolean isUsingMarkerAtlas() {
+        return renderer.isUsingMarkerAtlas();
+    }
+
+    /**
+     * Whether or not labels are drawn from sprites. The surface under the text of a label, its text and the shadow of
+     * its text are rasterized once into a bitmap, which is then drawn on each frame instead of the text. Sprites are
+     * kept in a cache bounded by memory, and rasterized again when the color or size of the text paint, or the paint
+     * under texts, change.
+     * 
+     * {@link #doDrawUnderTextPaint(Canvas, Layout)} is then only called when a sprite is rasterized : surfaces under
+     * texts that change from frame to frame should not be drawn from sprites. Sprites are drawn at the scale of the
+     * screen, they are blurred if the canvas is scaled up.
+     * 
+     * @param isUsingLabelSprites
+     *            if true, labels are drawn from cached bitmaps. If false, they are drawn on each frame.
+     */
+    public void setUsingLabelSprites( boolean isUsingLabelSprites ) {
+        renderer.setUsingLabelSprites( isUsingLabelSprites );
+        releaseAccumulationLayer();
+    }
+
+    public boolean isUsingLabelSprites() {
+        return renderer.isUsingLabelSprites();
+    }
+
+    /**
+     * Notifies this view that the points of its adapter have changed. Layers and indexes built from the points will be
+     * rebuilt and the view will be redrawn.
+     */
+    public void notifyDataSetChanged() {
+        releaseAccumulationLayer();
+        hitGrid = null;
+        invalidate();
+    }
+
+    /**
+     * Sets a listener that will be notified when a visible point is clicked. Points can be clicked on their drawable or
+     * their text.
+     * 
+     * @param onPointClickListener
+     *            the listener to notify, or null.
+     */
+    public void setOnPointClickListener( OnPointClickListener onPointClickListener ) {
+        this.onPointClickListener = onPointClickListener;
+    }
+
+    public OnPointClickListener getOnPointClickListener() {
+        return onPointClickListener;
+    }
+
+    /**
+     * Gives the visible point at a given location. When points overlap, the last one is returned, as it is drawn on top
+     * of the others.
+     * 
+     * @param x
+     *            the x coordinate of the location, in this view's coordinates.
+     * @param y
+     *            the y coordinate of the location, in this view's coordinates.
+     * @return the position of the visible point at (x,y), or -1 if there is none.
+     */
+    public int getPointPositionAt( int x, int y ) {
+        if ( drawViewAdapter == null || drawViewAdapter.getPointsCount() == 0 ) {
+            return -1;
+        }
+        int firstVisiblePoint = getFirstVisiblePoint();
+        int lastVisiblePoint = getLastVisiblePoint();
+        ensureHitGrid( firstVisiblePoint, lastVisiblePoint );
+        int id = hitGrid.findHighestIdAt( x + screenOffsetX, y + screenOffsetY, firstVisiblePoint - hitGridFirstPoint, lastVisiblePoint
+                - hitGridFirstPoint );
+        return id == -1 ? -1 : hitGridFirstPoint + id;
+    }
+
+    /**
+     * Indexes the bounds of visible points. Points are indexed as they become visible, so that adapters that don't hold
+     * all their points, like {@link PagedDrawViewAdapter}, are only asked for points that are shown. The index is
+     * rebuilt when the visible points don't follow the indexed ones. Ids of the grid start at 0, they are the positions
+     * of points relative to the first indexed point.
+     */
+    private void ensureHitGrid( int firstVisiblePoint, int lastVisiblePoint ) {
+        if ( hitGrid == null || firstVisiblePoint < hitGridFirstPoint || firstVisiblePoint > hitGridPointsEnd ) {
+            int cellSize = (int) TypedValue.applyDimension( TypedValue.COMPLEX_UNIT_DIP, HIT_GRID_CELL_SIZE, getResources().getDisplayMetrics() );
+            hitGrid = new SpatialGrid( screenOffsetX + getWidth(), screenOffsetY + getHeight(), cellSize );
+            hitGridFirstPoint = firstVisiblePoint;
+            hitGridPointsEnd = firstVisiblePoint;
+        }
+        for ( int index = hitGridPointsEnd; index <= lastVisiblePoint; index++ ) {
+            getPointBounds( index, pointBounds );
+            hitGrid.insert( index - hitGridFirstPoint, pointBounds.left, pointBounds.top, pointBounds.right, pointBounds.bottom );
+        }
+        hitGridPointsEnd = Math.max( hitGridPointsEnd, lastVisiblePoint + 1 );
+    }
+
+    /**
+     * Shows a given point, as if the animation had reached it. The animation goes on from this point.
+     * 
+     * @param position
+     *            the index of the point to show.
+     */
+    public void showPoint( int position ) {
+        int oldFirstVisiblePoint = getFirstVisiblePoint();
+        int oldLastVisiblePoint = getLastVisiblePoint();
+        boolean wasAnimationTerminated = isAnimationTerminated();
+        currentPointPositionToDisplay = Math.max( 0, Math.min( position, getDrawViewAdapter().getPointsCount() - 1 ) );
+        if ( isAnimationTerminated() ) {
+            animationScheduler.stop();
+            if ( !wasAnimationTerminated && animationListener != null ) {
+                animationListener.onAnimationEnd( null );
+            }
+        } else {
+            if ( wasAnimationTerminated && animationListener != null ) {
+                animationListener.onAnimationStart( null );
+            }
+            animationScheduler.start();
+        }
+        refreshDrawableState();
+        invalidateChangedPoints( oldFirstVisiblePoint, oldLastVisiblePoint );
+    }
+
+    @Override
+    public boolean onTouchEvent( MotionEvent event ) {
+        if ( onPointClickListener != null ) {
+            int x = (int) event.getX();
+            int y = (int) event.getY();
+            switch ( event.getAction() & MotionEvent.ACTION_MASK ) {
+                case MotionEvent.ACTION_DOWN:
+                    touchedPointPosition = getPointPositionAt( x, y );
+                    break;
+                case MotionEvent.ACTION_UP:
+                    int position = touchedPointPosition;
+                    touchedPointPosition = -1;
+                    if ( position != -1 && position == getPointPositionAt( x, y ) && onPointClickListener.onPointClick( this, position ) ) {
+                        // the click has been consumed by the point, cancel the click on the view.
+                        MotionEvent cancelEvent = MotionEvent.obtain( event );
+                        cancelEvent.setAction( MotionEvent.ACTION_CANCEL );
+                        super.onTouchEvent( cancelEvent );
+                        cancelEvent.recycle();
+                        return true;
+                    }
+                    break;
+                case MotionEvent.ACTION_CANCEL:
+                    touchedPointPosition = -1;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return super.onTouchEvent( event );
     }
 
     public boolean isAnimationTerminated() {
-        return currentPointPositionToDisplay >= getDrawViewAdapter().getPointsCount() - 1;
+        return renderer.isAnimationTerminated( currentPointPositionToDisplay );
     }
 
     /**
      * Restarts the animation from the beginning.
      */
     public void resetAnimation() {
-        handler.removeMessages( AnimatorHandler.ANIMATION_MESSAGE_ID );
+        int oldFirstVisiblePoint = getFirstVisiblePoint();
+        int oldLastVisiblePoint = getLastVisiblePoint();
         currentPointPositionToDisplay = 0;
+        accumulatedPointsCount = 0;
         if ( animationListener != null ) {
             animationListener.onAnimationStart( null );
         }
-        handler.sendEmptyMessageDelayed( AnimatorHandler.ANIMATION_MESSAGE_ID, delayBetweenPoints );
+        invalidateChangedPoints( oldFirstVisiblePoint, oldLastVisiblePoint );
+        animationScheduler.start();
     }
 
     /**
      * Restarts the animation from the beginning.
      */
     public void terminateAnimation() {
-        handler.removeMessages( AnimatorHandler.ANIMATION_MESSAGE_ID );
+        animationScheduler.stop();
+        int oldFirstVisiblePoint = getFirstVisiblePoint();
+        int oldLastVisiblePoint = getLastVisiblePoint();
         currentPointPositionToDisplay = getDrawViewAdapter().getPointsCount() - 1;
         if ( animationListener != null ) {
             animationListener.onAnimationEnd( null );
         }
         refreshDrawableState();
-        invalidate();
+        invalidateChangedPoints( oldFirstVisiblePoint, oldLastVisiblePoint );
     }
 
     public void setDrawViewAdapter( DrawViewAdapter drawViewAdapter ) {
         this.drawViewAdapter = drawViewAdapter;
+        renderer.setDrawViewAdapter( drawViewAdapter );
+        releaseAccumulationLayer();
+        hitGrid = null;
+        if ( drawViewAdapter != null && !isAnimationTerminated() ) {
+            animationScheduler.start();
+        } else {
+            animationScheduler.stop();
+        }
     }
 
     public DrawViewAdapter getDrawViewAdapter() {
@@ -143,7 +393,7 @@ public class DrawView extends View {
      */
     public void setDelayBetweenPoints( long delayBetweenPoints ) {
         this.delayBetweenPoints = delayBetweenPoints;
-        initializeHandler();
+        animationScheduler.setDelayBetweenTicks( delayBetweenPoints );
     }
 
     public long getDelayBetweenPoints() {
@@ -151,7 +401,7 @@ public class DrawView extends View {
     }
 
     public boolean isShowingAllPointsAtTheEndOfAnimation() {
-        return isShowingAllPointsAtTheEndOfAnimation;
+        return renderer.isShowingAllPointsAtTheEndOfAnimation();
     }
 
     /**
@@ -162,7 +412,7 @@ public class DrawView extends View {
      * 
      */
     public void setShowingAllPointsAtTheEndOfAnimation( boolean isShowingAllPointsAtTheEndOfAnimation ) {
-        this.isShowingAllPointsAtTheEndOfAnimation = isShowingAllPointsAtTheEndOfAnimation;
+        renderer.setShowingAllPointsAtTheEndOfAnimation( isShowingAllPointsAtTheEndOfAnimation );
     }
 
     /**
@@ -173,11 +423,11 @@ public class DrawView extends View {
      *            be displayed simultaneously.
      */
     public void setDrawingOnePointAtATime( boolean isDrawingOnePointAtATime ) {
-        this.isDrawingOnePointAtATime = isDrawingOnePointAtATime;
+        renderer.setDrawingOnePointAtATime( isDrawingOnePointAtATime );
     }
 
     public boolean isDrawingOnePointAtATime() {
-        return isDrawingOnePointAtATime;
+        return renderer.isDrawingOnePointAtATime();
     }
 
     /**
@@ -193,17 +443,164 @@ public class DrawView extends View {
         return animationListener;
     }
 
-    private void initializeHandler() {
-        handler = new AnimatorHandler( this, delayBetweenPoints );
+    private void initHolesPaint() {
+        holesPaint.setXfermode( new PorterDuffXfermode( Mode.DST_IN ) );
+    }
+
+    @Override
+    protected void onSizeChanged( int w, int h, int oldw, int oldh ) {
+        super.onSizeChanged( w, h, oldw, oldh );
+        releaseAccumulationLayer();
+        hitGrid = null;
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged( int visibility ) {
+        super.onWindowVisibilityChanged( visibility );
+        if ( visibility == VISIBLE ) {
+            animationScheduler.resume();
+        } else {
+            animationScheduler.pause();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        animationScheduler.pause();
+        releaseAccumulationLayer();
+        renderer.release();
+    }
+
+    /**
+     * Called by the {@link AnimationScheduler} every {@link #getDelayBetweenPoints()} ms while the animation runs.
+     * 
+     * @param tickLatenessNanos
+     *            how late the tick happens compared to the delay between points.
+     */
+    void onAnimationTick( long tickLatenessNanos ) {
+        if ( renderMetrics != null ) {
+            renderMetrics.recordTickLateness( tickLatenessNanos );
+        }
+        showNextPoint();
+        if ( isAnimationTerminated() ) {
+            animationScheduler.stop();
+        }
+    }
+
+    /**
+     * Enables or disables the recording of rendering metrics : duration of frames, points drawn per frame, time spent
+     * in the {@link DrawViewAdapter} and in canvas calls, adapter calls and canvas operations per frame, bitmaps
+     * allocated while drawing and lateness of animation ticks. Metrics are disabled by default, disabling them drops
+     * recorded values.
+     * 
+     * @param isRenderMetricsEnabled
+     *            whether or not to record rendering metrics.
+     * @see #getRenderMetrics()
+     */
+    public void setRenderMetricsEnabled( boolean isRenderMetricsEnabled ) {
+        if ( isRenderMetricsEnabled && renderMetrics == null ) {
+            renderMetrics = new RenderMetrics();
+        } else if ( !isRenderMetricsEnabled ) {
+            renderMetrics = null;
+        }
+        renderer.setRenderMetrics( renderMetrics );
+    }
+
+    public boolean isRenderMetricsEnabled() {
+        return renderMetrics != null;
+    }
+
+    /**
+     * @return a snapshot of the rendering metrics recorded since they have been enabled or reset, or null if they are
+     *         not enabled.
+     */
+    public RenderMetrics getRenderMetrics() {
+        return renderMetrics == null ? null : renderMetrics.snapshot();
+    }
+
+    /**
+     * Drops recorded rendering metrics, if they are enabled.
+     */
+    public void resetRenderMetrics() {
+        if ( renderMetrics != null ) {
+            renderMetrics = new RenderMetrics();
+            renderer.setRenderMetrics( renderMetrics );
+        }
+    }
+
+    /**
+     * Draws the points 0..lastVisiblePoint using the accumulation layer. Only points that are not yet in the layer are
+     * drawn into it, then the layer is blitted on the canvas.
+     * 
+     * Holes punched by {@link #doUseClearPorterDuffXfermode(Canvas, Drawable)} are recorded in a mask so that they
+     * still clear the content under this view.
+     * 
+     * @param lastVisiblePoint
+     *            the index of the last point to draw.
+     * @param canvas
+     *            the canvas on which to draw the points.
+     * @return the number of points drawn into the layer.
+     */
+    private int drawAccumulationLayer( int lastVisiblePoint, Canvas canvas ) {
+        if ( accumulationBitmap == null ) {
+            accumulationBitmap = Bitmap.createBitmap( getWidth(), getHeight(), Bitmap.Config.ARGB_8888 );
+            accumulationCanvas = new Canvas( accumulationBitmap );
+            accumulationCanvas.translate( -screenOffsetX, -screenOffsetY );
+            accumulatedPointsCount = 0;
+            if ( renderMetrics != null ) {
+                renderMetrics.addBitmapAllocation();
+            }
+        }
+        if ( renderer.isClearPorterDuffXfermodeEnabled() && holesBitmap == null ) {
+            holesBitmap = Bitmap.createBitmap( getWidth(), getHeight(), Bitmap.Config.ALPHA_8 );
+            holesCanvas = new Canvas( holesBitmap );
+            holesCanvas.translate( -screenOffsetX, -screenOffsetY );
+            accumulatedPointsCount = 0;
+            if ( renderMetrics != null ) {
+                renderMetrics.addBitmapAllocation();
+            }
+        }
+        if ( accumulatedPointsCount == 0 || accumulatedPointsCount > lastVisiblePoint + 1 ) {
+            accumulationBitmap.eraseColor( Color.TRANSPARENT );
+            if ( holesBitmap != null ) {
+                holesBitmap.eraseColor( Color.BLACK );
+            }
+            accumulatedPointsCount = 0;
+        }
+        int drawnPointsCount = Math.max( 0, lastVisiblePoint + 1 - accumulatedPointsCount );
+        renderer.drawPoints( accumulationCanvas, accumulatedPointsCount, lastVisiblePoint, false );
+        if ( holesBitmap != null ) {
+            // the mask is opaque where content under this view is kept, clearing it records a hole.
+            renderer.drawHoles( holesCanvas, accumulatedPointsCount, lastVisiblePoint );
+        }
+        accumulatedPointsCount = lastVisiblePoint + 1;
+
+        if ( holesBitmap != null ) {
+            canvas.drawBitmap( holesBitmap, 0, 0, holesPaint );
+        }
+        canvas.drawBitmap( accumulationBitmap, 0, 0, null );
+        if ( renderMetrics != null ) {
+            renderMetrics.addCanvasOps( holesBitmap != null ? 2 : 1 );
+        }
+        return drawnPointsCount;
     }
 
-    private void initUnderTextPaint() {
-        underTextPaint = new Paint();
-        underTextPaint.setColor( getResources().getColor( android.R.color.darker_gray ) );
-        underTextPaint.setAlpha( 150 );
+    /**
+     * Drops the bitmaps of the accumulation layer. They are not recycled, as they may still be referenced by the
+     * display list of a hardware accelerated view, they are reclaimed by the garbage collector once it is redrawn.
+     */
+    private void releaseAccumulationLayer() {
+        accumulationBitmap = null;
+        accumulationCanvas = null;
+        holesBitmap = null;
+        holesCanvas = null;
+        accumulatedPointsCount = 0;
     }
 
     private void showNextPoint() {
+        int oldFirstVisiblePoint = getFirstVisiblePoint();
+        int oldLastVisiblePoint = getLastVisiblePoint();
 
         if ( currentPointPositionToDisplay < getDrawViewAdapter().getPointsCount() - 1 ) {
             currentPointPositionToDisplay++;
@@ -213,38 +610,91 @@ public class DrawView extends View {
             }
         }
         refreshDrawableState();
-        invalidate();
+        invalidateChangedPoints( oldFirstVisiblePoint, oldLastVisiblePoint );
     }
 
     /**
-     * Draw the point at the position specified by {@link DrawViewAdapter#getTextPoint(int)}
+     * @return the index of the first point to draw in current animation state.
+     */
+    private int getFirstVisiblePoint() {
+        return renderer.getFirstVisiblePoint( currentPointPositionToDisplay );
+    }
+
+    /**
+     * @return the index of the last point to draw in current animation state.
+     */
+    private int getLastVisiblePoint() {
+        return renderer.getLastVisiblePoint( currentPointPositionToDisplay );
+    }
+
+    /**
+     * Invalidates only the area covered by points that appeared or disappeared since the given range of visible points.
+     * 
+     * @param oldFirstVisiblePoint
+     *            the index of the first point that was visible before the change.
+     * @param oldLastVisiblePoint
+     *            the index of the last point that was visible before the change.
+     */
+    private void invalidateChangedPoints( int oldFirstVisiblePoint, int oldLastVisiblePoint ) {
+        int newFirstVisiblePoint = getFirstVisiblePoint();
+        int newLastVisiblePoint = getLastVisiblePoint();
+        int pointsCount = getDrawViewAdapter().getPointsCount();
+        int first = Math.max( 0, Math.min( oldFirstVisiblePoint, newFirstVisiblePoint ) );
+        int last = Math.min( pointsCount - 1, Math.max( oldLastVisiblePoint, newLastVisiblePoint ) );
+
+        dirtyRect.setEmpty();
+        for ( int index = first; index <= last; index++ ) {
+            boolean wasVisible = index >= oldFirstVisiblePoint && index <= oldLastVisiblePoint;
+            boolean isVisible = index >= newFirstVisiblePoint && index <= newLastVisiblePoint;
+            if ( wasVisible != isVisible ) {
+                getPointBounds( index, pointBounds );
+                dirtyRect.union( pointBounds );
+            }
+        }
+        if ( !dirtyRect.isEmpty() ) {
+            dirtyRect.offset( -screenOffsetX, -screenOffsetY );
+            invalidate( dirtyRect );
+        }
+    }
+
+    /**
+     * Computes the area covered by the point at a given position : the bounds of its drawable, of its text and of the
+     * surface drawn under its text.
+     * 
+     * @param position
+     *            the index of the point.
+     * @param outBounds
+     *            the rect that will receive the bounds of the point.
+     * @see DemoRenderer#getPointBounds(int, Rect)
+     */
+    protected void getPointBounds( int position, Rect outBounds ) {
+        renderer.superGetPointBounds( position, outBounds );
+    }
+
+    /**
+     * Draw the point at the position specified by {@link DrawViewAdapter#getTextPointAt(int)}
      * 
      * @param position
      *            the index of the point to draw.
      * @param canvas
      *            the canvas on which to draw the point at position.
+     * @see DemoRenderer#drawPoint(int, Canvas)
      */
     protected void drawPoint( int position, Canvas canvas ) {
-        drawText( position, canvas );
-        drawDrawable( position, canvas );
+        renderer.superDrawPoint( position, canvas );
     }
 
     /**
-     * Draw the text of the point at a given position specified by {@link DrawViewAdapter#getTextPoint(int)}
+     * Draw the text of the point at a given position specified by {@link DrawViewAdapter#getTextPointAt(int)}
      * 
      * @param position
      *            the index of the point to draw.
      * @param canvas
      *            the canvas on which to draw the point at position.
+     * @see DemoRenderer#drawText(int, Canvas)
      */
     protected void drawText( int position, Canvas canvas ) {
-        Point point = drawViewAdapter.getTextPointAt( position );
-        canvas.save();
-        canvas.translate( point.x, point.y );
-        Layout layout = drawViewAdapter.getTextLayoutAt( position );
-        doDrawUnderTextPaint( canvas, layout );
-        layout.draw( canvas );
-        canvas.restore();
+        renderer.superDrawText( position, canvas );
     }
 
     /**
@@ -254,35 +704,23 @@ public class DrawView extends View {
      *            the canvas in which we draw.
      * @param layout
      *            the {@link Layout} associated to a {@link LabeledPoint}.
+     * @see DemoRenderer#doDrawUnderTextPaint(Canvas, Layout)
      */
     protected void doDrawUnderTextPaint( Canvas canvas, Layout layout ) {
-        if ( underTextPaint != null ) {
-            int margin = DRAW_UNDER_TEXT_CORNER_RADIUS;
-            RectF rect = new RectF( -margin, -margin, layout.getWidth() + margin * 2, layout.getHeight() + margin * 2 );
-            canvas.drawRoundRect( rect, 2 * margin, 2 * margin, underTextPaint );
-        }
+        renderer.superDoDrawUnderTextPaint( canvas, layout );
     }
 
     /**
-     * Draw the drawable of the point at a given position specified by {@link DrawViewAdapter#getDrawablePoint(int)}
+     * Draw the drawable of the point at a given position.
      * 
      * @param position
      *            the index of the point to draw.
      * @param canvas
      *            the canvas on which to draw the point at position.
+     * @see DemoRenderer#drawDrawable(int, Canvas)
      */
     protected void drawDrawable( int position, Canvas canvas ) {
-        Drawable drawable = drawViewAdapter.getDrawableAt( position );
-        if ( drawable == null ) {
-            return;
-        }
-        doUseClearPorterDuffXfermode( canvas, drawable );
-        drawable.draw( canvas );
-        /*
-         * Shall we add some debug mode ? Paint paint = new Paint(); paint.setColor(
-         * getContext().getResources().getColor( android.R.color.holo_orange_dark ) ); canvas.drawCircle(
-         * drawable.getBounds().exactCenterX(), drawable.getBounds().exactCenterY(), 5, paint );
-         */
+        renderer.superDrawDrawable( position, canvas );
     }
 
     /**
@@ -294,52 +732,98 @@ public class DrawView extends View {
      *            the canvas on which to draw the point at position.
      * @param drawable
      *            the {@link Drawable} that is going to be drawn.
-     * @see #isClearPorterDuffXfermodeEnabled
      * @see #setIsClearPorterDuffXfermodeEnabled(boolean)
      */
     protected void doUseClearPorterDuffXfermode( Canvas canvas, Drawable drawable ) {
-        if ( isClearPorterDuffXfermodeEnabled ) {
-            Paint p = new Paint();
-            p.setXfermode( new PorterDuffXfermode( Mode.CLEAR ) );
-            int cx = drawable.getBounds().centerX();
-            int cy = drawable.getBounds().centerY();
-            int radius = drawable.getIntrinsicWidth() / 2 - 3;
-            canvas.drawCircle( cx, cy, radius, p );
-        }
+        renderer.superDoUseClearPorterDuffXfermode( canvas, drawable );
     }
 
     /**
-     * Animate the point to draw on screen.
+     * The renderer of this view. Its hooks call the protected methods of the view, so that subclasses of {@link DrawView}
+     * keep customizing the rendering by overriding them.
      * 
      * @author sni
      * 
      */
-    private static final class AnimatorHandler extends Handler {
-        private static final int ANIMATION_MESSAGE_ID = 0;
+    private final class ViewRenderer extends DemoRenderer {
 
-        private WeakReference< DrawView > weakReference;
-        private long delayBetweenPoints;
+        private ViewRenderer( Context context ) {
+            super( context );
+        }
 
-        private AnimatorHandler( DrawView drawView, long delayBetweenPoints ) {
-            this.weakReference = new WeakReference< DrawView >( drawView );
-            this.delayBetweenPoints = delayBetweenPoints;
-            sendEmptyMessageDelayed( AnimatorHandler.ANIMATION_MESSAGE_ID, delayBetweenPoints );
+        @Override
+        protected void getPointBounds( int position, Rect outBounds ) {
+            DrawView.this.getPointBounds( position, outBounds );
         }
 
         @Override
-        public void handleMessage( Message msg ) {
-            super.handleMessage( msg );
-            if ( msg.what == ANIMATION_MESSAGE_ID ) {
-                if ( weakReference == null || weakReference.get() == null || weakReference.get().getDrawViewAdapter() == null ) {
-                    return;
-                }
-                DrawView drawView = weakReference.get();
-                drawView.showNextPoint();
-                sendEmptyMessageDelayed( AnimatorHandler.ANIMATION_MESSAGE_ID, delayBetweenPoints );
-            }
+        protected void drawPoint( int position, Canvas canvas ) {
+            DrawView.this.drawPoint( position, canvas );
+        }
 
+        @Override
+        protected void drawText( int position, Canvas canvas ) {
+            DrawView.this.drawText( position, canvas );
         }
 
+        @Override
+        protected void doDrawUnderTextPaint( Canvas canvas, Layout layout ) {
+            DrawView.this.doDrawUnderTextPaint( canvas, layout );
+        }
+
+        @Override
+        protected void drawDrawable( int position, Canvas canvas ) {
+            DrawView.this.drawDrawable( position, canvas );
+        }
+
+        @Override
+        protected void doUseClearPorterDuffXfermode( Canvas canvas, Drawable drawable ) {
+            DrawView.this.doUseClearPorterDuffXfermode( canvas, drawable );
+        }
+
+        private void superGetPointBounds( int position, Rect outBounds ) {
+            super.getPointBounds( position, outBounds );
+        }
+
+        private void superDrawPoint( int position, Canvas canvas ) {
+            super.drawPoint( position, canvas );
+        }
+
+        private void superDrawText( int position, Canvas canvas ) {
+            super.drawText( position, canvas );
+        }
+
+        private void superDoDrawUnderTextPaint( Canvas canvas, Layout layout ) {
+            super.doDrawUnderTextPaint( canvas, layout );
+        }
+
+        private void superDrawDrawable( int position, Canvas canvas ) {
+            super.drawDrawable( position, canvas );
+        }
+
+        private void superDoUseClearPorterDuffXfermode( Canvas canvas, Drawable drawable ) {
+            super.doUseClearPorterDuffXfermode( canvas, drawable );
+        }
+    }
+
+    /**
+     * Listener notified when a visible {@link LabeledPoint} of a {@link DrawView} is clicked.
+     * 
+     * @see DrawView#setOnPointClickListener(OnPointClickListener)
+     * @author sni
+     * 
+     */
+    public interface OnPointClickListener {
+        /**
+         * Called when a visible point has been clicked.
+         * 
+         * @param drawView
+         *            the view in which the point has been clicked.
+         * @param position
+         *            the index of the clicked point.
+         * @return true if the click has been consumed. If false, the click is dispatched to the view itself.
+         */
+        boolean onPointClick( DrawView drawView, int position );
     }
 
-}
\ No newline at end of file
+}
@@ -29,7 +29,7 @@ public interface DrawViewAdapter {
      * 
      * @param position
      *            the position of the {@link LabeledPoint} to render.
-     * @return the {@link Drawable} of the {@link LabeledPoint} at a given position.
+     * @return the {@link Drawable} of the {@link LabeledPoint} at a given position, or null if it has none.
      */
     public Drawable getDrawableAt( int position );
 
@@ -38,7 +38,8 @@ public interface DrawViewAdapter {
      * 
      * @param position
      *            the position of the {@link LabeledPoint} to render.
-     * @return the {@link Point} to use when rendering the text of the {@link LabeledPoint} at a given position.
+     * @return the {@link Point} to use when rendering the text of the {@link LabeledPoint} at a given position, or null
+     *         if it has no text. It may be reused by the next call.
      */
     public Point getTextPointAt( int position );
 
@@ -47,7 +48,8 @@ public interface DrawViewAdapter {
      * 
      * @param position
      *            the position of the {@link LabeledPoint} to render.
-     * @return the {@link Layout} to use when rendering the text of the {@link LabeledPoint} at a given position.
+     * @return the {@link Layout} to use when rendering the text of the {@link LabeledPoint} at a given position, or null
+     *         if it has no text.
      */
     public Layout getTextLayoutAt( int position );
 
@@ -0,0 +1,110 @@
+package com.octo.android.robodemo;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.text.Layout;
+
+import com.octo.android.robodemo.core.LruCache;
+
+/**
+ * A cache of the rasterized labels of points : the surface drawn under a text, the text and its shadow, drawn once into
+ * a bitmap that is then drawn on each frame. Shadowed texts are costly to draw, a bitmap is not.
+ * 
+ * Sprites are keyed by the identity of their {@link Layout}, layouts being rebuilt when texts change. As a text paint
+ * can be modified after its layouts have been built, the color and size of the paint of a layout, and the paint drawn
+ * under it, are checked on every lookup : a sprite that doesn't match them anymore is rasterized again. Other attributes
+ * of paints, like shadow layers, are not checked.
+ * 
+ * The cache is bounded by the memory of its bitmaps, least recently used sprites are evicted first. Evicted bitmaps are
+ * not recycled, as they may still be referenced by the display list of a hardware accelerated view.
+ * 
+ * @author sni
+ * 
+ */
+final class LabelSpriteCache {
+
+    /** Default maximum memory of cached sprites : 1/16 of the heap, in bytes. */
+    static final int DEFAULT_MAX_SIZE = (int) Math.min( Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16 );
+
+    private final LruCache< Layout, Sprite > spriteCache;
+
+    LabelSpriteCache( int maxSize ) {
+        spriteCache = new LruCache< Layout, Sprite >( maxSize ) {
+            @Override
+            protected int sizeOf( Layout key, Sprite value ) {
+                return value.bitmap.getRowBytes() * value.bitmap.getHeight();
+            }
+        };
+    }
+
+    /**
+     * @param width
+     *            the width of a sprite, in px.
+     * @param height
+     *            the height of a sprite, in px.
+     * @return true if a sprite of this size is small enough to be cached without evicting most other sprites.
+     */
+    boolean isCacheable( int width, int height ) {
+        return width > 0 && height > 0 && (long) width * height * 4 <= spriteCache.maxSize() / 4;
+    }
+
+    /**
+     * @param layout
+     *            the layout of a label.
+     * @param underTextPaint
+     *            the paint drawn under the text, can be null.
+     * @return the sprite of the label, or null if there is none or if it has been rasterized with other paints.
+     */
+    Bitmap get( Layout layout, Paint underTextPaint ) {
+        Sprite sprite = spriteCache.get( layout );
+        if ( sprite == null || !sprite.isMatching( layout, underTextPaint ) ) {
+            return null;
+        }
+        return sprite.bitmap;
+    }
+
+    /**
+     * Caches the sprite of a label.
+     * 
+     * @param layout
+     *            the layout of the label.
+     * @param underTextPaint
+     *            the paint drawn under the text, can be null.
+     * @param bitmap
+     *            the rasterized label.
+     */
+    void put( Layout layout, Paint underTextPaint, Bitmap bitmap ) {
+        spriteCache.put( layout, new Sprite( layout, underTextPaint, bitmap ) );
+    }
+
+    /**
+     * Removes all sprites.
+     */
+    void evictAll() {
+        spriteCache.evictAll();
+    }
+
+    /**
+     * A rasterized label, with the paint attributes it has been drawn with.
+     */
+    private static final class Sprite {
+        private final Bitmap bitmap;
+        private final int textColor;
+        private final float textSize;
+        private final Paint underTextPaint;
+        private final int underTextColor;
+
+        Sprite( Layout layout, Paint underTextPaint, Bitmap bitmap ) {
+            this.bitmap = bitmap;
+            this.textColor = layout.getPaint().getColor();
+            this.textSize = layout.getPaint().getTextSize();
+            this.underTextPaint = underTextPaint;
+            this.underTextColor = underTextPaint == null ? 0 : underTextPaint.getColor();
+        }
+
+        boolean isMatching( Layout layout, Paint currentUnderTextPaint ) {
+            return textColor == layout.getPaint().getColor() && textSize == layout.getPaint().getTextSize() && underTextPaint == currentUnderTextPaint
+                    && ( currentUnderTextPaint == null || underTextColor == currentUnderTextPaint.getColor() );
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.octo.android.robodemo;
+
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+/**
+ * A {@link TextPaint} that remembers its shadow layer. {@link Paint} doesn't give its shadow layer back, so a
+ * {@link TextLayoutCache} can only share the layouts of texts drawn with a {@link LabelTextPaint} : layouts of other
+ * paints, whose shadow is unknown, are not cached. The default text paint of adapters is a {@link LabelTextPaint}, use
+ * this class for custom paints that should share their layouts too.
+ * 
+ * @author sni
+ * 
+ */
+public final class LabelTextPaint extends TextPaint {
+
+    private float shadowRadius;
+    private float shadowDx;
+    private float shadowDy;
+    private int shadowColor;
+    // false once the paint has been set from a paint whose shadow is unknown.
+    private boolean isShadowKnown = true;
+
+    public LabelTextPaint() {
+    }
+
+    public LabelTextPaint( int flags ) {
+        super( flags );
+    }
+
+    public LabelTextPaint( Paint paint ) {
+        super( paint );
+        copyShadowLayer( paint );
+    }
+
+    @Override
+    public void set( Paint src ) {
+        super.set( src );
+        copyShadowLayer( src );
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        setShadowLayerFields( 0, 0, 0, 0 );
+        isShadowKnown = true;
+    }
+
+    @Override
+    public void setShadowLayer( float radius, float dx, float dy, int color ) {
+        super.setShadowLayer( radius, dx, dy, color );
+        setShadowLayerFields( radius, dx, dy, color );
+        isShadowKnown = true;
+    }
+
+    @Override
+    public void clearShadowLayer() {
+        super.clearShadowLayer();
+        setShadowLayerFields( 0, 0, 0, 0 );
+        isShadowKnown = true;
+    }
+
+    /**
+     * @return false if this paint has been set from a paint that is not a {@link LabelTextPaint} and its shadow layer
+     *         has not been set since. Shadow getters are meaningless then.
+     */
+    public boolean isShadowKnown() {
+        return isShadowKnown;
+    }
+
+    public float getShadowRadius() {
+        return shadowRadius;
+    }
+
+    public float getShadowDx() {
+        return shadowDx;
+    }
+
+    public float getShadowDy() {
+        return shadowDy;
+    }
+
+    public int getShadowColor() {
+        return shadowColor;
+    }
+
+    private void copyShadowLayer( Paint src ) {
+        if ( src instanceof LabelTextPaint ) {
+            LabelTextPaint labelTextPaint = (LabelTextPaint) src;
+            setShadowLayerFields( labelTextPaint.shadowRadius, labelTextPaint.shadowDx, labelTextPaint.shadowDy, labelTextPaint.shadowColor );
+            isShadowKnown = labelTextPaint.isShadowKnown;
+        } else {
+            setShadowLayerFields( 0, 0, 0, 0 );
+            isShadowKnown = false;
+        }
+    }
+
+    private void setShadowLayerFields( float radius, float dx, float dy, int color ) {
+        shadowRadius = radius;
+        shadowDx = dx;
+        shadowDy = dy;
+        shadowColor = color;
+    }
+}
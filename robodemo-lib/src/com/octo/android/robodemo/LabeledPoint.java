@@ -1,13 +1,21 @@
 package com.octo.android.robodemo;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
 import android.app.Activity;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.view.Display;
 import android.view.View;
+import android.view.ViewGroup;
+
+import com.octo.android.robodemo.core.Positions;
 
 /**
  * A pojo class that wraps all information needed to display a point on screen. {@link LabeledPoint} embed a position
@@ -23,6 +31,14 @@ public class LabeledPoint extends Point implements Parcelable {
     /** The text associated to this point. */
     private String text;
 
+    /** The view this point is anchored to, if its location must be resolved later. Not written to parcels. */
+    private WeakReference< View > anchorView;
+    private float anchorWidthPercent;
+    private float anchorHeightPercent;
+    /** The ratios of the screen size this point is located at, NaN if it isn't relative to the screen. Not parceled. */
+    private float screenWidthRatio = Float.NaN;
+    private float screenHeightRatio = Float.NaN;
+
     /**
      * Creates an empty {@link LabeledPoint}.
      */
@@ -135,8 +151,8 @@ public class LabeledPoint extends Point implements Parcelable {
     public LabeledPoint( View v, float widthPercent, float heightPercent, String text ) {
         int[] location = new int[ 2 ];
         v.getLocationOnScreen( location );
-        this.x = location[ 0 ] + Math.round( widthPercent * v.getMeasuredWidth() / 100 );
-        this.y = location[ 1 ] + Math.round( heightPercent * v.getMeasuredHeight() / 100 );
+        this.x = Positions.getLocationInView( location[ 0 ], v.getMeasuredWidth(), widthPercent );
+        this.y = Positions.getLocationInView( location[ 1 ], v.getMeasuredHeight(), heightPercent );
         setText( text );
     }
 
@@ -154,23 +170,12 @@ public class LabeledPoint extends Point implements Parcelable {
      * @param text
      *            the new text of the point.
      */
-    @SuppressWarnings("deprecation")
     public LabeledPoint( Activity activity, float widthPercent, float heightPercent, String text ) {
-
-        Display display = activity.getWindowManager().getDefaultDisplay();
-        int screenWidth = 0;
-        int screenHeight = 0;
-        if ( Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB_MR2 ) {
-            Point outSize = new Point();
-            display.getSize( outSize );
-            screenHeight = outSize.y;
-            screenWidth = outSize.x;
-        } else {
-            screenWidth = display.getWidth();
-            screenHeight = display.getHeight();
-        }
-        x = (int) ( screenWidth * widthPercent );
-        y = (int) ( screenHeight * heightPercent );
+        Point screenSize = new Point();
+        getScreenSize( activity.getWindowManager().getDefaultDisplay(), screenSize );
+        screenWidthRatio = widthPercent;
+        screenHeightRatio = heightPercent;
+        relocateInScreen( screenSize.x, screenSize.y );
         setText( text );
     }
 
@@ -190,6 +195,154 @@ public class LabeledPoint extends Point implements Parcelable {
         this( activity, widthPercent, heightPercent, null );
     }
 
+    /**
+     * Creates a copy of a {@link LabeledPoint}, with its text and the way it is located : its anchor view or its ratios
+     * of the screen size. The copy can be relocated without moving the original point.
+     * 
+     * @param src
+     *            the point to copy.
+     */
+    LabeledPoint( LabeledPoint src ) {
+        super( src );
+        setText( src.text );
+        anchorView = src.anchorView;
+        anchorWidthPercent = src.anchorWidthPercent;
+        anchorHeightPercent = src.anchorHeightPercent;
+        screenWidthRatio = src.screenWidthRatio;
+        screenHeightRatio = src.screenHeightRatio;
+    }
+
+    /**
+     * @param listPoints
+     *            the points to copy.
+     * @return a new list holding a copy of each point, see {@link #LabeledPoint(LabeledPoint)}.
+     */
+    static ArrayList< LabeledPoint > copyList( List< LabeledPoint > listPoints ) {
+        ArrayList< LabeledPoint > listCopies = new ArrayList< LabeledPoint >( listPoints.size() );
+        for ( int index = 0, count = listPoints.size(); index < count; index++ ) {
+            listCopies.add( new LabeledPoint( listPoints.get( index ) ) );
+        }
+        return listCopies;
+    }
+
+    /**
+     * Creates a {@link LabeledPoint} anchored to a given view. Contrary to {@link #LabeledPoint(View, float, float, String)}
+     * , the location of the view is not read now but later, when all anchors are resolved in one pass by
+     * {@link RoboDemo#resolveAnchors(Activity, java.util.List, RoboDemo.OnAnchorsResolvedListener)}, once the layout of
+     * the activity is complete. Only a weak reference to the view is kept.
+     * 
+     * @param view
+     *            the view to anchor the point to.
+     * @param widthPercent
+     *            the percent of the view width at which to place the new point.
+     * @param heightPercent
+     *            the percent of the view height at which to place the new point.
+     * @param text
+     *            the new text of the point.
+     * @return a new point, whose location is not resolved yet.
+     */
+    public static LabeledPoint anchoredTo( View view, float widthPercent, float heightPercent, String text ) {
+        LabeledPoint point = new LabeledPoint();
+        point.anchorView = new WeakReference< View >( view );
+        point.anchorWidthPercent = widthPercent;
+        point.anchorHeightPercent = heightPercent;
+        point.setText( text );
+        return point;
+    }
+
+    /**
+     * @return true if this point is anchored to a view, see {@link #anchoredTo(View, float, float, String)}.
+     */
+    public boolean isAnchored() {
+        return anchorView != null;
+    }
+
+    /**
+     * Computes the location of this point from the view it is anchored to.
+     * 
+     * @param rootView
+     *            the root view of the window of the anchor view.
+     * @param rootLocation
+     *            the location of rootView on screen.
+     * @param scratchRect
+     *            a rect used for computations.
+     * @return true if the location has been resolved, false if this point is not anchored or if its view has been
+     *         garbage collected.
+     */
+    boolean resolveAnchor( View rootView, int[] rootLocation, Rect scratchRect ) {
+        View view = anchorView == null ? null : anchorView.get();
+        if ( view == null ) {
+            return false;
+        }
+        scratchRect.set( 0, 0, view.getWidth(), view.getHeight() );
+        int left;
+        int top;
+        if ( view != rootView && rootView instanceof ViewGroup && view.getWindowToken() == rootView.getWindowToken() ) {
+            ( (ViewGroup) rootView ).offsetDescendantRectToMyCoords( view, scratchRect );
+            left = rootLocation[ 0 ] + scratchRect.left;
+            top = rootLocation[ 1 ] + scratchRect.top;
+        } else {
+            int[] location = new int[ 2 ];
+            view.getLocationOnScreen( location );
+            left = location[ 0 ];
+            top = location[ 1 ];
+        }
+        this.x = Positions.getLocationInView( left, view.getWidth(), anchorWidthPercent );
+        this.y = Positions.getLocationInView( top, view.getHeight(), anchorHeightPercent );
+        return true;
+    }
+
+    /**
+     * @return the view this point is anchored to, or null if it is not anchored or if its view has been garbage
+     *         collected.
+     */
+    View getAnchorView() {
+        return anchorView == null ? null : anchorView.get();
+    }
+
+    /**
+     * @return true if this point is located relatively to the size of the screen, see
+     *         {@link #LabeledPoint(Activity, float, float, String)}.
+     */
+    boolean isRelativeToScreen() {
+        return !Float.isNaN( screenWidthRatio );
+    }
+
+    /**
+     * Computes again the location of this point if it is relative to the screen, typically after a rotation.
+     * 
+     * @param screenWidth
+     *            the new width of the screen.
+     * @param screenHeight
+     *            the new height of the screen.
+     * @return true if the location has been computed, false if this point is not relative to the screen.
+     */
+    boolean relocateInScreen( int screenWidth, int screenHeight ) {
+        if ( !isRelativeToScreen() ) {
+            return false;
+        }
+        x = Positions.getLocationInScreen( screenWidth, screenWidthRatio );
+        y = Positions.getLocationInScreen( screenHeight, screenHeightRatio );
+        return true;
+    }
+
+    /**
+     * Reads the size of a display, with the API available on the device.
+     * 
+     * @param display
+     *            the display to measure.
+     * @param outSize
+     *            receives the width and height of the display, in px.
+     */
+    @SuppressWarnings("deprecation")
+    static void getScreenSize( Display display, Point outSize ) {
+        if ( Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB_MR2 ) {
+            display.getSize( outSize );
+        } else {
+            outSize.set( display.getWidth(), display.getHeight() );
+        }
+    }
+
     public String getText() {
         return text;
     }
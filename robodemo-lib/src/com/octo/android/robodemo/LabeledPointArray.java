@@ -0,0 +1,123 @@
+package com.octo.android.robodemo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.octo.android.robodemo.core.PointArray;
+import com.octo.android.robodemo.core.PointCodec;
+
+/**
+ * A compact container of {@link LabeledPoint} that can be passed between the Activity to illustrate and the
+ * {@link DemoActivity}. Contrary to an {@link ArrayList} of {@link LabeledPoint}, it is written to a {@link Parcel} as
+ * a single byte array holding all coordinates and a table of distinct texts, see {@link PointCodec}. Points sharing the
+ * same text only store its index in this table.
+ * 
+ * @author sni
+ * 
+ */
+public final class LabeledPointArray implements Parcelable {
+
+    private final PointArray points;
+
+    /**
+     * Creates a {@link LabeledPointArray} holding the coordinates and texts of a list of points.
+     * 
+     * @param listPoints
+     *            the points to store.
+     */
+    public LabeledPointArray( List< LabeledPoint > listPoints ) {
+        int size = listPoints.size();
+        int[] xs = new int[ size ];
+        int[] ys = new int[ size ];
+        String[] pointTexts = new String[ size ];
+        for ( int index = 0; index < size; index++ ) {
+            LabeledPoint point = listPoints.get( index );
+            xs[ index ] = point.x;
+            ys[ index ] = point.y;
+            pointTexts[ index ] = point.getText();
+        }
+        points = new PointArray( xs, ys, pointTexts );
+    }
+
+    /**
+     * Creates a {@link LabeledPointArray} holding points read from a platform independent array, without copying them.
+     * 
+     * @param points
+     *            the points to hold.
+     */
+    public LabeledPointArray( PointArray points ) {
+        this.points = points;
+    }
+
+    private LabeledPointArray( Parcel in ) {
+        points = PointCodec.decode( in.createByteArray() );
+    }
+
+    /**
+     * @return the number of points in this array.
+     */
+    public int size() {
+        return points.size();
+    }
+
+    public int getX( int index ) {
+        return points.getX( index );
+    }
+
+    public int getY( int index ) {
+        return points.getY( index );
+    }
+
+    public String getText( int index ) {
+        return points.getText( index );
+    }
+
+    /**
+     * @return the platform independent points held by this array.
+     */
+    public PointArray getPointArray() {
+        return points;
+    }
+
+    /**
+     * Creates a new {@link LabeledPoint} for every point of this array.
+     * 
+     * @return the list of points stored in this array.
+     */
+    public ArrayList< LabeledPoint > toArrayList() {
+        int size = points.size();
+        ArrayList< LabeledPoint > listPoints = new ArrayList< LabeledPoint >( size );
+        for ( int index = 0; index < size; index++ ) {
+            listPoints.add( new LabeledPoint( getX( index ), getY( index ), getText( index ) ) );
+        }
+        return listPoints;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel( Parcel out, int flags ) {
+        out.writeByteArray( PointCodec.encode( points ) );
+    }
+
+    /**
+     * Parcel creator for point arrays.
+     */
+    public static final Parcelable.Creator< LabeledPointArray > CREATOR = new Parcelable.Creator< LabeledPointArray >() {
+        @Override
+        public LabeledPointArray createFromParcel( Parcel in ) {
+            return new LabeledPointArray( in );
+        }
+
+        @Override
+        public LabeledPointArray[] newArray( int size ) {
+            return new LabeledPointArray[ size ];
+        }
+    };
+}
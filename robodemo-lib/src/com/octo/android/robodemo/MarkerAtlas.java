@@ -0,0 +1,159 @@
+package com.octo.android.robodemo;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A bitmap holding the rasterized markers of points. Each distinct {@link Drawable} is drawn once into the atlas, at
+ * the size of its bounds, then all markers are drawn from the same bitmap with source rects. This replaces one draw call
+ * per drawable, with its own texture and state, by a run of identical bitmap draws.
+ * 
+ * Markers are packed in shelves : rows of markers whose height is the height of the tallest marker of the row. The
+ * atlas grows vertically, up to {@link #MAX_SIZE}. Markers that don't fit must be drawn directly.
+ * 
+ * Drawables are assumed to be static : a drawable whose state or level changes is not rasterized again, unless the
+ * size of its bounds changes. The slot of a drawable rasterized again is stale, stale slots are reclaimed when the atlas
+ * is full : it is started over, markers still drawn are rasterized again in a new bitmap.
+ * 
+ * Bitmaps of the atlas are never recycled, they may still be referenced by the display list of a hardware accelerated
+ * view. They are dropped and left to the garbage collector.
+ * 
+ * @author sni
+ * 
+ */
+final class MarkerAtlas {
+
+    private static final int INITIAL_HEIGHT = 256;
+    private static final int WIDTH = 512;
+    /** Maximum height of the atlas, in px. */
+    private static final int MAX_SIZE = 2048;
+    /** Empty space around markers, so that they don't bleed into each other. */
+    private static final int PADDING = 1;
+
+    private final Map< Drawable, Rect > mapSlots = new IdentityHashMap< Drawable, Rect >();
+    private final Rect savedBounds = new Rect();
+    private final Paint bitmapPaint = new Paint();
+    private Bitmap bitmap;
+    private Canvas canvas;
+    // area of the slots of drawables that have been rasterized again at another size, in px.
+    private int staleArea = 0;
+
+    // current shelf.
+    private int shelfLeft = 0;
+    private int shelfTop = 0;
+    private int shelfHeight = 0;
+
+    /**
+     * Draws a drawable, at its bounds, from the atlas. The drawable is rasterized into the atlas the first time.
+     * 
+     * @param targetCanvas
+     *            the canvas to draw on.
+     * @param drawable
+     *            the drawable to draw.
+     * @return true if the drawable has been drawn, false if it doesn't fit in the atlas and must be drawn directly.
+     */
+    boolean draw( Canvas targetCanvas, Drawable drawable ) {
+        Rect bounds = drawable.getBounds();
+        Rect slot = getSlot( drawable, bounds.width(), bounds.height() );
+        if ( slot == null ) {
+            return false;
+        }
+        targetCanvas.drawBitmap( bitmap, slot, bounds, bitmapPaint );
+        return true;
+    }
+
+    private Rect getSlot( Drawable drawable, int width, int height ) {
+        if ( width <= 0 || height <= 0 ) {
+            return null;
+        }
+        Rect slot = mapSlots.get( drawable );
+        if ( slot != null && slot.width() == width && slot.height() == height ) {
+            return slot;
+        }
+        if ( slot != null ) {
+            staleArea += ( slot.width() + 2 * PADDING ) * ( slot.height() + 2 * PADDING );
+        }
+        slot = allocateSlot( width, height );
+        if ( slot == null && staleArea > 0 ) {
+            // reclaims stale slots, other drawables will be rasterized again when they are drawn.
+            release();
+            slot = allocateSlot( width, height );
+        }
+        if ( slot == null ) {
+            return null;
+        }
+        drawable.copyBounds( savedBounds );
+        drawable.setBounds( slot );
+        drawable.draw( canvas );
+        drawable.setBounds( savedBounds );
+        mapSlots.put( drawable, slot );
+        return slot;
+    }
+
+    private Rect allocateSlot( int width, int height ) {
+        int paddedWidth = width + 2 * PADDING;
+        int paddedHeight = height + 2 * PADDING;
+        if ( paddedWidth > WIDTH || paddedHeight > MAX_SIZE ) {
+            return null;
+        }
+        if ( shelfLeft + paddedWidth > WIDTH ) {
+            shelfTop += shelfHeight;
+            shelfLeft = 0;
+            shelfHeight = 0;
+        }
+        if ( !ensureHeight( shelfTop + paddedHeight ) ) {
+            return null;
+        }
+        Rect slot = new Rect( shelfLeft + PADDING, shelfTop + PADDING, shelfLeft + PADDING + width, shelfTop + PADDING + height );
+        shelfLeft += paddedWidth;
+        shelfHeight = Math.max( shelfHeight, paddedHeight );
+        return slot;
+    }
+
+    /**
+     * Grows the atlas, keeping markers already rasterized at the same place.
+     */
+    private boolean ensureHeight( int height ) {
+        int currentHeight = bitmap == null ? 0 : bitmap.getHeight();
+        if ( height <= currentHeight ) {
+            return true;
+        }
+        if ( height > MAX_SIZE ) {
+            return false;
+        }
+        int newHeight = Math.max( INITIAL_HEIGHT, currentHeight );
+        while ( newHeight < height ) {
+            newHeight *= 2;
+        }
+        newHeight = Math.min( MAX_SIZE, newHeight );
+        Bitmap newBitmap = Bitmap.createBitmap( WIDTH, newHeight, Bitmap.Config.ARGB_8888 );
+        Canvas newCanvas = new Canvas( newBitmap );
+        if ( bitmap != null ) {
+            // the old bitmap is not recycled, it may still be referenced by the frame being drawn.
+            newCanvas.drawBitmap( bitmap, 0, 0, null );
+        }
+        bitmap = newBitmap;
+        canvas = newCanvas;
+        return true;
+    }
+
+    /**
+     * Drops the bitmap of the atlas. Markers will be rasterized again if the atlas is used afterwards. The bitmap is not
+     * recycled, as the frame being drawn may still reference it.
+     */
+    void release() {
+        bitmap = null;
+        canvas = null;
+        mapSlots.clear();
+        staleArea = 0;
+        shelfLeft = 0;
+        shelfTop = 0;
+        shelfHeight = 0;
+    }
+}
@@ -0,0 +1,252 @@
+package com.octo.android.robodemo;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Point;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.util.Log;
+
+import com.octo.android.robodemo.core.PointArray;
+import com.octo.android.robodemo.core.PointSource;
+
+/**
+ * A {@link DrawViewAdapter} for very long demos, whose points are read in pages from a {@link PointSource}, for
+ * instance an {@link com.octo.android.robodemo.core.EncodedPointSource} reading a file or an uncompressed asset.
+ * 
+ * Only a bounded window of pages, with their layouts and positions, is kept in memory. When a page is first accessed,
+ * the next page is read and laid out in background, so that it is ready when the animation reaches it.
+ * 
+ * Each page is laid out by its own {@link DefaultDrawViewAdapter} : labels avoid colliding with the points of their
+ * page only. This adapter is meant to be displayed one point at a time, see
+ * {@link DrawView#setDrawingOnePointAtATime(boolean)} and {@link DrawView#setShowingAllPointsAtTheEndOfAnimation(boolean)}
+ * : showing many points at once reads all their pages on every frame.
+ * 
+ * Pages that can't be read from the source are logged and left empty : the getters of this adapter return null for
+ * their points, which are not drawn.
+ * 
+ * This adapter must be used on the UI thread.
+ * 
+ * @author sni
+ * 
+ */
+public class PagedDrawViewAdapter implements DrawViewAdapter {
+
+    private static final String TAG = "PagedDrawViewAdapter";
+
+    /** Default number of points per page. */
+    public static final int DEFAULT_PAGE_SIZE = 32;
+    /** Default number of pages kept in memory, besides the page being prefetched. */
+    public static final int DEFAULT_WINDOW_PAGE_COUNT = 2;
+
+    private final Context context;
+    private final Drawable drawable;
+    private final TextPaint textPaint;
+    private final PointSource pointSource;
+    private final int pageSize;
+    private final Map< Integer, DefaultDrawViewAdapter > mapPages;
+    // pages that could not be read, they are read again when the configuration changes.
+    private final Set< Integer > setUnreadablePageIndexes = new HashSet< Integer >();
+
+    // page read and laid out in background, -1 if none.
+    private int prefetchedPageIndex = -1;
+    private Future< DefaultDrawViewAdapter > futurePrefetchedPage;
+
+    public PagedDrawViewAdapter( Context context, PointSource pointSource ) {
+        this( context, context.getResources().getDrawable( R.drawable.ic_lockscreen_handle_pressed ), DefaultDrawViewAdapter
+                .createDefaultTextPaint( context ), pointSource, DEFAULT_PAGE_SIZE, DEFAULT_WINDOW_PAGE_COUNT );
+    }
+
+    /**
+     * @param context
+     *            the context used to get the screen configuration.
+     * @param drawable
+     *            the drawable used to illustrate points.
+     * @param textPaint
+     *            the paint used to render the texts of points.
+     * @param pointSource
+     *            the source of points. It is closed by {@link #close()}.
+     * @param pageSize
+     *            the number of points read at once.
+     * @param windowPageCount
+     *            the maximum number of pages kept in memory, at least 1.
+     */
+    public PagedDrawViewAdapter( Context context, Drawable drawable, TextPaint textPaint, PointSource pointSource, int pageSize,
+            final int windowPageCount ) {
+        this.context = context.getApplicationContext();
+        this.drawable = drawable;
+        this.textPaint = textPaint;
+        this.pointSource = pointSource;
+        this.pageSize = pageSize;
+        // least recently used pages are dropped first.
+        this.mapPages = new LinkedHashMap< Integer, DefaultDrawViewAdapter >( windowPageCount + 1, 0.75f, true ) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry< Integer, DefaultDrawViewAdapter > eldest ) {
+                return size() > Math.max( 1, windowPageCount );
+            }
+        };
+    }
+
+    /**
+     * Must be called when the screen configuration changes. Pages in memory are laid out again on next access.
+     * 
+     * @param newConfig
+     *            the new configuration.
+     */
+    public void onConfigurationChanged( Configuration newConfig ) {
+        cancelPrefetch();
+        setUnreadablePageIndexes.clear();
+        for ( DefaultDrawViewAdapter page : mapPages.values() ) {
+            page.onConfigurationChanged( newConfig );
+        }
+    }
+
+    /**
+     * Drops all pages and closes the source of points. This adapter can't be used afterwards.
+     */
+    public void close() {
+        cancelPrefetch();
+        mapPages.clear();
+        try {
+            pointSource.close();
+        } catch ( IOException e ) {
+            Log.w( TAG, "Unable to close point source", e );
+        }
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int getPointsCount() {
+        return pointSource.size();
+    }
+
+    /**
+     * @return the drawable of a point, or null if its page could not be read.
+     */
+    @Override
+    public Drawable getDrawableAt( int position ) {
+        DefaultDrawViewAdapter page = getPage( position );
+        return page == null ? null : page.getDrawableAt( position % pageSize );
+    }
+
+    /**
+     * @return the layout of the text of a point, or null if its page could not be read.
+     */
+    @Override
+    public Layout getTextLayoutAt( int position ) {
+        DefaultDrawViewAdapter page = getPage( position );
+        return page == null ? null : page.getTextLayoutAt( position % pageSize );
+    }
+
+    /**
+     * @return the location of the text of a point, or null if its page could not be read.
+     */
+    @Override
+    public Point getTextPointAt( int position ) {
+        DefaultDrawViewAdapter page = getPage( position );
+        return page == null ? null : page.getTextPointAt( position % pageSize );
+    }
+
+    /**
+     * Gives the page holding a point, reading it if it is not in memory, and starts prefetching the next page.
+     * 
+     * @return the page, or null if it could not be read.
+     */
+    private DefaultDrawViewAdapter getPage( int position ) {
+        int pageIndex = position / pageSize;
+        DefaultDrawViewAdapter page = mapPages.get( pageIndex );
+        if ( page == null ) {
+            if ( setUnreadablePageIndexes.contains( pageIndex ) ) {
+                return null;
+            }
+            page = takePrefetchedPage( pageIndex );
+            if ( page == null ) {
+                try {
+                    page = createPage( pageIndex );
+                } catch ( IOException e ) {
+                    // pages are read while drawing, which must not fail : the points of this page are not drawn.
+                    Log.e( TAG, "Unable to read points of page " + pageIndex, e );
+                    setUnreadablePageIndexes.add( pageIndex );
+                    return null;
+                }
+            }
+            mapPages.put( pageIndex, page );
+        }
+        prefetch( pageIndex + 1 );
+        return page;
+    }
+
+    private DefaultDrawViewAdapter takePrefetchedPage( int pageIndex ) {
+        if ( prefetchedPageIndex != pageIndex ) {
+            return null;
+        }
+        Future< DefaultDrawViewAdapter > future = futurePrefetchedPage;
+        prefetchedPageIndex = -1;
+        futurePrefetchedPage = null;
+        if ( !future.isDone() ) {
+            // the animation caught up with the prefetch, that may be queued behind the preparation of a demo : the page
+            // is read now rather than waiting for it on the UI thread.
+            future.cancel( false );
+            return null;
+        }
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch ( ExecutionException e ) {
+            Log.e( TAG, "Page prefetch failed", e.getCause() );
+            return null;
+        }
+    }
+
+    private void prefetch( final int pageIndex ) {
+        if ( pageIndex * pageSize >= getPointsCount() || prefetchedPageIndex == pageIndex || mapPages.containsKey( pageIndex )
+                || setUnreadablePageIndexes.contains( pageIndex ) ) {
+            return;
+        }
+        cancelPrefetch();
+        prefetchedPageIndex = pageIndex;
+        futurePrefetchedPage = BackgroundExecutors.getPreparationExecutor().submit( new Callable< DefaultDrawViewAdapter >() {
+            @Override
+            public DefaultDrawViewAdapter call() throws Exception {
+                DefaultDrawViewAdapter page = createPage( pageIndex );
+                page.prepare( BackgroundExecutors.getLayoutExecutor() );
+                return page;
+            }
+        } );
+    }
+
+    private void cancelPrefetch() {
+        if ( futurePrefetchedPage != null ) {
+            futurePrefetchedPage.cancel( false );
+            futurePrefetchedPage = null;
+        }
+        prefetchedPageIndex = -1;
+    }
+
+    /**
+     * Reads a page of points. Its layouts and positions are computed on first access, or by
+     * {@link DefaultDrawViewAdapter#prepare(java.util.concurrent.ExecutorService)}. This method can be called from any
+     * thread.
+     */
+    private DefaultDrawViewAdapter createPage( int pageIndex ) throws IOException {
+        PointArray points = pointSource.read( pageIndex * pageSize, pageSize );
+        return new DefaultDrawViewAdapter( context, drawable, textPaint, new LabeledPointArray( points ) );
+    }
+}
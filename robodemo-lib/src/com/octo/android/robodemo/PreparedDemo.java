@@ -0,0 +1,82 @@
+package com.octo.android.robodemo;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * A handle on a demo whose texts are being laid out in background. It is returned by
+ * {@link RoboDemo#prepareDemo(android.content.Context, ArrayList, android.graphics.drawable.Drawable, android.text.TextPaint, RoboDemo.OnDemoPreparedListener)}
+ * and can be passed to a {@link DemoActivity} through
+ * {@link RoboDemo#prepareDemoActivityIntent(android.content.Intent, String, PreparedDemo)}, so that its first frame
+ * is drawn from ready data.
+ * 
+ * @author sni
+ * 
+ */
+public final class PreparedDemo {
+
+    private static final String TAG = "PreparedDemo";
+
+    private final ArrayList< LabeledPoint > listPoints;
+    private final FutureTask< DefaultDrawViewAdapter > futureDrawViewAdapter;
+
+    PreparedDemo( ArrayList< LabeledPoint > listPoints, Callable< DefaultDrawViewAdapter > preparation,
+            final RoboDemo.OnDemoPreparedListener onDemoPreparedListener ) {
+        this.listPoints = listPoints;
+        this.futureDrawViewAdapter = new FutureTask< DefaultDrawViewAdapter >( preparation ) {
+            @Override
+            protected void done() {
+                if ( onDemoPreparedListener != null && !isCancelled() ) {
+                    new Handler( Looper.getMainLooper() ).post( new Runnable() {
+                        @Override
+                        public void run() {
+                            onDemoPreparedListener.onDemoPrepared( PreparedDemo.this );
+                        }
+                    } );
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the task computing the adapter of this demo. It must be executed once.
+     */
+    Runnable getPreparationTask() {
+        return futureDrawViewAdapter;
+    }
+
+    public ArrayList< LabeledPoint > getListPoints() {
+        return listPoints;
+    }
+
+    /**
+     * @return true if all layouts and positions of the demo have been computed.
+     */
+    public boolean isPrepared() {
+        return futureDrawViewAdapter.isDone();
+    }
+
+    /**
+     * Gives the adapter of this demo, with all its layouts and positions computed. If the preparation is not finished
+     * yet, this method blocks until it is.
+     * 
+     * @return the prepared adapter, or null if preparation failed.
+     */
+    public DefaultDrawViewAdapter getDrawViewAdapter() {
+        try {
+            return futureDrawViewAdapter.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch ( ExecutionException e ) {
+            Log.e( TAG, "Demo preparation failed", e.getCause() );
+            return null;
+        }
+    }
+}
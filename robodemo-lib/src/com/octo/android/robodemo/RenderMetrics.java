@@ -0,0 +1,178 @@
+package com.octo.android.robodemo;
+
+import com.octo.android.robodemo.core.Histogram;
+
+/**
+ * Rendering metrics of a {@link DrawView}, recorded when {@link DrawView#setRenderMetricsEnabled(boolean)} is on. All
+ * durations are in nanoseconds.
+ * 
+ * Besides durations, the number of adapter calls and canvas operations of each frame, and the number of bitmaps
+ * allocated while drawing, are counted. They don't depend on the speed of the device, so they can be compared to fixed
+ * budgets, for instance by an instrumentation test rendering a demo in each drawing mode.
+ * 
+ * Instances returned by {@link DrawView#getRenderMetrics()} are snapshots, they are not updated by later frames and can
+ * be sent to any thread, for instance to report them to a telemetry service.
+ * 
+ * @author sni
+ * 
+ */
+public final class RenderMetrics {
+
+    /** The duration of a frame at 60 fps, frames drawn in more time than this are counted as over budget. */
+    public static final long FRAME_BUDGET_NANOS = 16666667L;
+
+    private final Histogram drawTimes;
+    private final Histogram pointsPerFrame;
+    private final Histogram adapterTimes;
+    private final Histogram canvasTimes;
+    private final Histogram tickLatenesses;
+    private final Histogram adapterCallsPerFrame;
+    private final Histogram canvasOpsPerFrame;
+    private long framesOverBudgetCount;
+    private long bitmapAllocationCount;
+
+    // adapter time, adapter calls and canvas operations of the frame being drawn.
+    private long frameAdapterNanos;
+    private int frameAdapterCalls;
+    private int frameCanvasOps;
+
+    RenderMetrics() {
+        drawTimes = new Histogram();
+        pointsPerFrame = new Histogram();
+        adapterTimes = new Histogram();
+        canvasTimes = new Histogram();
+        tickLatenesses = new Histogram();
+        adapterCallsPerFrame = new Histogram();
+        canvasOpsPerFrame = new Histogram();
+    }
+
+    private RenderMetrics( RenderMetrics src ) {
+        drawTimes = new Histogram( src.drawTimes );
+        pointsPerFrame = new Histogram( src.pointsPerFrame );
+        adapterTimes = new Histogram( src.adapterTimes );
+        canvasTimes = new Histogram( src.canvasTimes );
+        tickLatenesses = new Histogram( src.tickLatenesses );
+        adapterCallsPerFrame = new Histogram( src.adapterCallsPerFrame );
+        canvasOpsPerFrame = new Histogram( src.canvasOpsPerFrame );
+        framesOverBudgetCount = src.framesOverBudgetCount;
+        bitmapAllocationCount = src.bitmapAllocationCount;
+    }
+
+    RenderMetrics snapshot() {
+        return new RenderMetrics( this );
+    }
+
+    void beginFrame() {
+        frameAdapterNanos = 0;
+        frameAdapterCalls = 0;
+        frameCanvasOps = 0;
+    }
+
+    void addAdapterTime( long nanos, int callCount ) {
+        frameAdapterNanos += nanos;
+        frameAdapterCalls += callCount;
+    }
+
+    void addCanvasOps( int count ) {
+        frameCanvasOps += count;
+    }
+
+    void addBitmapAllocation() {
+        bitmapAllocationCount++;
+    }
+
+    void endFrame( long drawNanos, int drawnPointsCount ) {
+        drawTimes.record( drawNanos );
+        pointsPerFrame.record( drawnPointsCount );
+        adapterTimes.record( frameAdapterNanos );
+        canvasTimes.record( drawNanos - frameAdapterNanos );
+        adapterCallsPerFrame.record( frameAdapterCalls );
+        canvasOpsPerFrame.record( frameCanvasOps );
+        if ( drawNanos > FRAME_BUDGET_NANOS ) {
+            framesOverBudgetCount++;
+        }
+    }
+
+    void recordTickLateness( long nanos ) {
+        tickLatenesses.record( nanos );
+    }
+
+    /**
+     * @return the durations of {@link DrawView#onDraw(android.graphics.Canvas)}.
+     */
+    public Histogram getDrawTimes() {
+        return drawTimes;
+    }
+
+    /**
+     * @return the number of points drawn by each frame. Points that are off screen or already in the accumulation layer
+     *         are not counted.
+     */
+    public Histogram getPointsPerFrame() {
+        return pointsPerFrame;
+    }
+
+    /**
+     * @return the time spent, in each frame, getting the content of points from the {@link DrawViewAdapter}.
+     */
+    public Histogram getAdapterTimes() {
+        return adapterTimes;
+    }
+
+    /**
+     * @return the time spent, in each frame, outside of the {@link DrawViewAdapter}, mostly in canvas calls.
+     */
+    public Histogram getCanvasTimes() {
+        return canvasTimes;
+    }
+
+    /**
+     * @return how late each animation tick happened compared to the delay between points. On Jelly Bean and above,
+     *         ticks wait for the next frame, so latenesses up to a frame are expected.
+     */
+    public Histogram getTickLatenesses() {
+        return tickLatenesses;
+    }
+
+    /**
+     * @return the number of calls to the {@link DrawViewAdapter} made by each frame.
+     */
+    public Histogram getAdapterCallsPerFrame() {
+        return adapterCallsPerFrame;
+    }
+
+    /**
+     * @return the number of draw operations issued by each frame : texts, surfaces under texts, drawables, holes and
+     *         bitmaps, including operations drawing into offscreen layers and sprites.
+     */
+    public Histogram getCanvasOpsPerFrame() {
+        return canvasOpsPerFrame;
+    }
+
+    /**
+     * @return the number of bitmaps allocated while drawing : accumulation layers and label sprites. Once a demo is
+     *         displayed, it should stay constant.
+     */
+    public long getBitmapAllocationCount() {
+        return bitmapAllocationCount;
+    }
+
+    public long getFrameCount() {
+        return drawTimes.getCount();
+    }
+
+    /**
+     * @return the number of frames that took more than {@link #FRAME_BUDGET_NANOS} to draw.
+     */
+    public long getFramesOverBudgetCount() {
+        return framesOverBudgetCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderMetrics [frames=" + getFrameCount() + ", overBudget=" + framesOverBudgetCount + ", bitmapAllocations="
+                + bitmapAllocationCount + ", drawTimes={" + drawTimes + "}, pointsPerFrame={" + pointsPerFrame + "}, adapterTimes={"
+                + adapterTimes + "}, canvasTimes={" + canvasTimes + "}, adapterCallsPerFrame={" + adapterCallsPerFrame + "}, canvasOpsPerFrame={"
+                + canvasOpsPerFrame + "}, tickLatenesses={" + tickLatenesses + "}]";
+    }
+}
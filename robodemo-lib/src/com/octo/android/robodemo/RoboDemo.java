@@ -1,19 +1,38 @@
 package com.octo.android.robodemo;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+
+import com.octo.android.robodemo.core.DemoScript;
 
 public class RoboDemo {
 
+    /**
+     * The {@link SharedPreferences} file used by previous versions to store the 'never show again' state of demos. It
+     * is now only read, see {@link DemoStateStore}.
+     */
     public static final String SHARED_PREFERENCE_NAME = "default";
     public static final String BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS = "BUNDLE_KEY_DEMO_ARRAY_LIST_POINTS";
     public static final String BUNDLE_KEY_DEMO_ACTIVITY_ID = "BUNDLE_KEY_DEMO_ACTIVITY_ID";
+    public static final String BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY = "BUNDLE_KEY_DEMO_ACTIVITY_LABELED_POINT_ARRAY";
+    public static final String BUNDLE_KEY_DEMO_ACTIVITY_TOKEN = "BUNDLE_KEY_DEMO_ACTIVITY_TOKEN";
+    public static final String BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS = "BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS";
 
     /**
-     * Prepares an intent for a DemoActivity.
+     * Prepares an intent for a DemoActivity. Points are registered in process and the intent only carries a token to
+     * take them back, as the {@link DemoActivity} runs in the same process as its caller : points are never marshalled
+     * to start a demo. The intent must be started soon after it has been prepared : the points of an intent that is not
+     * started within a minute are released. The list of points must not be modified afterwards.
      * 
      * @param intent
      *            the intent to be used to launch the sublcass of {@link DemoActivity}.
@@ -23,33 +42,282 @@ public class RoboDemo {
      *            an {@link ArrayList} of {@link LabeledPoint} to Display.
      */
     public static void prepareDemoActivityIntent( Intent intent, String demoActivityId, ArrayList< LabeledPoint > listPoints ) {
+        prepareDemoActivityIntent( intent, demoActivityId, new DemoRegistry.Entry( listPoints, null ) );
+    }
+
+    /**
+     * Prepares an intent for a DemoActivity, using a demo prepared in background. The {@link DemoActivity} will draw
+     * its first frame using the layouts of the prepared demo.
+     * 
+     * @param intent
+     *            the intent to be used to launch the sublcass of {@link DemoActivity}.
+     * @param demoActivityId
+     *            the id that will be used to store the information about the 'never show again' checkbox.
+     * @param preparedDemo
+     *            a demo returned by {@link #prepareDemo(Context, ArrayList, Drawable, TextPaint, OnDemoPreparedListener)}.
+     */
+    public static void prepareDemoActivityIntent( Intent intent, String demoActivityId, PreparedDemo preparedDemo ) {
+        prepareDemoActivityIntent( intent, demoActivityId, new DemoRegistry.Entry( preparedDemo.getListPoints(), preparedDemo ) );
+    }
+
+    static void prepareDemoActivityIntent( Intent intent, String demoActivityId, DemoRegistry.Entry entry ) {
         intent.putExtra( BUNDLE_KEY_DEMO_ACTIVITY_ID, demoActivityId );
-        intent.putParcelableArrayListExtra( BUNDLE_KEY_DEMO_ACTIVITY_ARRAY_LIST_POINTS, listPoints );
+        intent.putExtra( BUNDLE_KEY_DEMO_ACTIVITY_TOKEN, DemoRegistry.register( demoActivityId, entry ) );
+    }
+
+    /**
+     * Sets the delay between the animation of two points in the intent of a {@link DemoActivity}.
+     * 
+     * @param intent
+     *            the intent to be used to launch the sublcass of {@link DemoActivity}.
+     * @param delayBetweenPoints
+     *            the delay between two points, in ms. 0 keeps the default delay.
+     */
+    public static void setDelayBetweenPoints( Intent intent, long delayBetweenPoints ) {
+        intent.putExtra( BUNDLE_KEY_DEMO_ACTIVITY_DELAY_BETWEEN_POINTS, delayBetweenPoints );
+    }
+
+    /**
+     * Opens a script of demos compiled at build time by {@link com.octo.android.robodemo.core.DemoScriptCompiler}. The
+     * asset is memory mapped and demos are decoded on demand, so that a script can hold many demos at no cost. Assets
+     * that are compressed in the apk can't be mapped and are read in memory instead.
+     * 
+     * @param context
+     *            any context of the application.
+     * @param assetName
+     *            the name of the asset holding the script.
+     * @return the script.
+     * @throws IOException
+     *             if the asset could not be read or doesn't hold a script.
+     */
+    public static DemoScript openDemoScript( Context context, String assetName ) throws IOException {
+        return DemoScripts.open( context.getAssets(), assetName );
+    }
+
+    /**
+     * Opens a script of demos in background, see {@link #openDemoScript(Context, String)}. Opening a script reads the
+     * apk, on the UI thread prefer this method. This method returns immediately.
+     * 
+     * @param context
+     *            any context of the application.
+     * @param assetName
+     *            the name of the asset holding the script.
+     * @param onDemoScriptOpenedListener
+     *            the listener notified on the UI thread once the script is opened, or could not be.
+     */
+    public static void openDemoScript( Context context, String assetName, OnDemoScriptOpenedListener onDemoScriptOpenedListener ) {
+        DemoScripts.open( context.getApplicationContext().getAssets(), assetName, onDemoScriptOpenedListener );
+    }
+
+    /**
+     * Creates the points of a demo of a script. Anchored points must then be resolved with
+     * {@link #resolveAnchors(Activity, List, OnAnchorsResolvedListener)}.
+     * 
+     * @param activity
+     *            the activity to demonstrate, labels and anchor views are looked up in its resources and views.
+     * @param demoScript
+     *            a script opened by {@link #openDemoScript(Context, String)}.
+     * @param demoName
+     *            the name of the demo in the script.
+     * @return the points of the demo, or null if the script holds no demo with this name.
+     * @see DemoScript#getDelayBetweenPoints(int)
+     */
+    public static ArrayList< LabeledPoint > createDemoPoints( Activity activity, DemoScript demoScript, String demoName ) {
+        int demo = demoScript.findDemo( demoName );
+        return demo == -1 ? null : DemoScripts.createPoints( activity, demoScript, demo );
+    }
+
+    /**
+     * Displays a demo on top of the content of an activity, without starting a {@link DemoActivity}.
+     * 
+     * @param caller
+     *            the activity to demonstrate.
+     * @param demoActivityId
+     *            the id that will be used to store the information about the 'never show again' checkbox.
+     * @param drawViewAdapter
+     *            the adapter providing the points to draw.
+     * @return the displayed demo, that can be dismissed programmatically, for instance when back is pressed.
+     */
+    public static DemoOverlay showDemoOverlay( Activity caller, String demoActivityId, DrawViewAdapter drawViewAdapter ) {
+        DemoOverlay demoOverlay = new DemoOverlay( caller, demoActivityId, drawViewAdapter );
+        demoOverlay.show();
+        return demoOverlay;
+    }
+
+    /**
+     * Lays out the texts of all points of a demo in background, using one thread per available processor. This method
+     * returns immediately.
+     * 
+     * @param context
+     *            the context used to get the screen configuration.
+     * @param listPoints
+     *            an {@link ArrayList} of {@link LabeledPoint} to Display.
+     * @param drawable
+     *            the drawable used to illustrate points.
+     * @param textPaint
+     *            the paint used to render the texts of points.
+     * @param onDemoPreparedListener
+     *            a listener notified on the UI thread when the demo is prepared. Can be null.
+     * @return a handle on the demo being prepared.
+     */
+    public static PreparedDemo prepareDemo( Context context, ArrayList< LabeledPoint > listPoints, Drawable drawable, TextPaint textPaint,
+            OnDemoPreparedListener onDemoPreparedListener ) {
+        final Context applicationContext = context.getApplicationContext();
+        final ArrayList< LabeledPoint > preparedListPoints = listPoints;
+        final Drawable preparedDrawable = drawable;
+        final TextPaint preparedTextPaint = textPaint;
+
+        PreparedDemo preparedDemo = new PreparedDemo( listPoints, new Callable< DefaultDrawViewAdapter >() {
+            @Override
+            public DefaultDrawViewAdapter call() throws Exception {
+                DefaultDrawViewAdapter drawViewAdapter = new DefaultDrawViewAdapter( applicationContext, preparedDrawable, preparedTextPaint,
+                        preparedListPoints );
+                drawViewAdapter.prepare( BackgroundExecutors.getLayoutExecutor() );
+                return drawViewAdapter;
+            }
+        }, onDemoPreparedListener );
+        BackgroundExecutors.getPreparationExecutor().execute( preparedDemo.getPreparationTask() );
+        return preparedDemo;
     }
 
     /**
-     * Allows to check if a demo activity has been set never to display again.
+     * Allows to check if a demo activity has been set never to display again. Waits for the state of demos to be
+     * loaded, which blocks the UI thread while the state is read from disk.
      * 
      * @param caller
-     *            the activity that is calling the {@link DemoActivity}. Its {@link SharedPreferences} will be used
-     *            internally by the {@link DemoActivity}.
+     *            the activity that is calling the {@link DemoActivity}.
      * @param demoActivityId
      *            the id that will be used to store the information about the 'never show again' checkbox.
+     * @deprecated use {@link #isNeverShowAgain(Activity, String, DemoStateStore.OnDemoStateLoadedListener)}, that
+     *             doesn't wait for the state of demos to be loaded.
      */
+    @Deprecated
     public static boolean isNeverShowAgain( Activity caller, String demoActivityId ) {
-        return caller.getSharedPreferences( SHARED_PREFERENCE_NAME, Activity.MODE_PRIVATE ).getBoolean( demoActivityId, false );
+        return DemoStateStore.getInstance( caller ).isNeverShowAgain( demoActivityId );
     }
 
     /**
-     * Reset a demo activity to show again.
+     * Allows to check if a demo activity has been set never to display again, without waiting for the state of demos to
+     * be loaded. This method must be called on the UI thread.
      * 
      * @param caller
-     *            the activity that is calling the {@link DemoActivity}. Its {@link SharedPreferences} will be used
-     *            internally by the {@link DemoActivity}.
+     *            the activity that is calling the {@link DemoActivity}.
+     * @param demoActivityId
+     *            the id that will be used to store the information about the 'never show again' checkbox.
+     * @param onDemoStateLoadedListener
+     *            the listener notified, on the UI thread, of the state of the demo.
+     */
+    public static void isNeverShowAgain( Activity caller, String demoActivityId, DemoStateStore.OnDemoStateLoadedListener onDemoStateLoadedListener ) {
+        DemoStateStore.getInstance( caller ).isNeverShowAgain( demoActivityId, onDemoStateLoadedListener );
+    }
+
+    /**
+     * Gives the demos, among a collection of demos, that have not been set never to display again. Waits for the state
+     * of demos to be loaded, see {@link DemoStateStore#whenLoaded(DemoStateStore.OnDemoStatesLoadedListener)}.
+     * 
+     * @param context
+     *            any context of the application.
+     * @param demoActivityIds
+     *            the ids of demos.
+     * @return the ids of the demos that can still be displayed, in iteration order.
+     */
+    public static List< String > getUnseenDemoIds( Context context, Collection< String > demoActivityIds ) {
+        return DemoStateStore.getInstance( context ).getUnseenDemoIds( demoActivityIds );
+    }
+
+    /**
+     * Resolves the location of all points of a list created by
+     * {@link LabeledPoint#anchoredTo(android.view.View, float, float, String)}. Anchors are resolved all at once, right
+     * before the next frame of the activity is drawn, so that the layout of the activity is complete, and the listener
+     * is notified then, on the UI thread. This replaces waiting an arbitrary delay before reading the location of views.
+     * 
+     * @param activity
+     *            the activity holding the anchor views.
+     * @param listPoints
+     *            the points to resolve, points that are not anchored are left untouched.
+     * @param onAnchorsResolvedListener
+     *            the listener to notify once locations are resolved.
+     */
+    public static void resolveAnchors( Activity activity, List< LabeledPoint > listPoints, OnAnchorsResolvedListener onAnchorsResolvedListener ) {
+        new AnchorResolver( activity.getWindow().getDecorView(), listPoints, onAnchorsResolvedListener ).start();
+    }
+
+    /**
+     * Starts loading the 'never show again' state of all demos in background. Calling this method early, for instance
+     * in {@link android.app.Application#onCreate()}, avoids waiting for the state when a demo is about to be shown.
+     * 
+     * @param context
+     *            any context of the application.
+     */
+    public static void preloadDemoStates( Context context ) {
+        DemoStateStore.getInstance( context );
+    }
+
+    /**
+     * Reset a demo activity to show again. The change is visible immediately and written in background.
+     * 
+     * @param caller
+     *            the activity that is calling the {@link DemoActivity}.
      * @param demoActivityId
      *            the id that will be used to store the information about the 'never show again' checkbox.
      */
     public static boolean showAgain( Activity caller, String demoActivityId ) {
-        return caller.getSharedPreferences( SHARED_PREFERENCE_NAME, Activity.MODE_PRIVATE ).edit().remove( demoActivityId ).commit();
+        DemoStateStore.getInstance( caller ).setNeverShowAgain( demoActivityId, false );
+        return true;
+    }
+
+    /**
+     * Listener notified when a demo has been prepared in background.
+     * 
+     * @see RoboDemo#prepareDemo(Context, ArrayList, Drawable, TextPaint, OnDemoPreparedListener)
+     * @author sni
+     * 
+     */
+    public interface OnDemoPreparedListener {
+        /**
+         * Called on the UI thread when all layouts and positions of a demo have been computed, or when their computation
+         * failed. In the later case, {@link PreparedDemo#getDrawViewAdapter()} will return null.
+         * 
+         * @param preparedDemo
+         *            the demo that has been prepared.
+         */
+        void onDemoPrepared( PreparedDemo preparedDemo );
+    }
+
+    /**
+     * Listener notified when a script of demos has been opened in background.
+     * 
+     * @see RoboDemo#openDemoScript(Context, String, OnDemoScriptOpenedListener)
+     * @author sni
+     * 
+     */
+    public interface OnDemoScriptOpenedListener {
+        /**
+         * Called on the UI thread when a script has been opened, or when it could not be.
+         * 
+         * @param assetName
+         *            the name of the asset holding the script.
+         * @param demoScript
+         *            the script, or null if the asset could not be read or doesn't hold a script. The error is logged.
+         */
+        void onDemoScriptOpened( String assetName, DemoScript demoScript );
+    }
+
+    /**
+     * Listener notified when the location of view-anchored points has been resolved.
+     * 
+     * @see RoboDemo#resolveAnchors(Activity, List, OnAnchorsResolvedListener)
+     * @author sni
+     * 
+     */
+    public interface OnAnchorsResolvedListener {
+        /**
+         * Called on the UI thread, right before the frame following the layout of the activity is drawn. Points whose
+         * view has been garbage collected keep their previous location.
+         * 
+         * @param listPoints
+         *            the points that have been resolved.
+         */
+        void onAnchorsResolved( List< LabeledPoint > listPoints );
     }
 }
@@ -0,0 +1,254 @@
+package com.octo.android.robodemo;
+
+import java.util.Locale;
+
+import android.content.res.Configuration;
+import android.graphics.ColorFilter;
+import android.graphics.MaskFilter;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.Layout.Alignment;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import com.octo.android.robodemo.core.LruCache;
+
+/**
+ * A process wide cache of the text layouts of labels, shared by the {@link DefaultDrawViewAdapter} that use it, see
+ * {@link DefaultDrawViewAdapter#setUsingSharedTextLayoutCache(boolean)}. The same labels are often shown by many demos
+ * and after every rotation, they are measured only once.
+ * 
+ * Layouts are keyed by their text, wrap width and the attributes of the paint they are drawn with : text size, scale,
+ * skew, typeface, flags, alignment, color, style, stroke width and shadow layer, and the identity of its shader, mask
+ * filter and color filter. Each cached layout is built with its own copy of the paint, so that changing a paint
+ * afterwards doesn't alter cached layouts. As {@link android.graphics.Paint} doesn't give its shadow layer back, only
+ * the layouts of a {@link LabelTextPaint} are cached, layouts of other paints are built each time they are asked for.
+ * 
+ * The cache is bounded by an estimate of the memory of its layouts, least recently used layouts are evicted first. It
+ * is cleared when the font scale or the locale changes, but not on rotation.
+ * 
+ * @author sni
+ * 
+ */
+public final class TextLayoutCache {
+
+    /** Default maximum memory of cached layouts : 1/64 of the heap, in bytes. */
+    public static final int DEFAULT_MAX_SIZE = (int) Math.min( Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 64 );
+
+    // estimated memory of a layout and its copy of the paint, and of each line of a layout, in bytes.
+    private static final int LAYOUT_SIZE = 512;
+    private static final int LINE_SIZE = 32;
+
+    private static final TextLayoutCache INSTANCE = new TextLayoutCache( DEFAULT_MAX_SIZE );
+
+    private final LruCache< Key, Layout > layoutCache;
+    private float fontScale;
+    private Locale locale;
+
+    private TextLayoutCache( int maxSize ) {
+        layoutCache = new LruCache< Key, Layout >( maxSize ) {
+            @Override
+            protected int sizeOf( Key key, Layout value ) {
+                return estimateSize( key.text, value );
+            }
+        };
+    }
+
+    /**
+     * @return the cache of the process.
+     */
+    public static TextLayoutCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gives the layout of a label, building it if it is not cached. This method can be called from any thread.
+     * 
+     * @param text
+     *            the text of the label.
+     * @param paint
+     *            the paint to draw the text with. Layouts are only cached if it is a {@link LabelTextPaint} whose shadow
+     *            is known, otherwise a layout keeping this paint is built.
+     * @param maxWidth
+     *            the width at which the text is wrapped. Texts narrower than this width are not wrapped.
+     * @return the layout of the text, centered and as narrow as possible.
+     */
+    public Layout getLayout( String text, TextPaint paint, int maxWidth ) {
+        if ( !( paint instanceof LabelTextPaint ) || !( (LabelTextPaint) paint ).isShadowKnown() ) {
+            return createLayout( text, paint, maxWidth );
+        }
+        Key key = new Key( text, (LabelTextPaint) paint, maxWidth );
+        Layout layout = layoutCache.get( key );
+        if ( layout == null ) {
+            layout = createLayout( text, new LabelTextPaint( paint ), maxWidth );
+            layoutCache.put( key, layout );
+        }
+        return layout;
+    }
+
+    /**
+     * Builds the layout of a label, without caching it.
+     * 
+     * @param text
+     *            the text of the label.
+     * @param paint
+     *            the paint to draw the text with, it is kept by the layout.
+     * @param maxWidth
+     *            the width at which the text is wrapped.
+     * @return the layout of the text.
+     */
+    static Layout createLayout( String text, TextPaint paint, int maxWidth ) {
+        Rect bounds = new Rect();
+        paint.getTextBounds( text, 0, text.length(), bounds );
+        int width = Math.min( bounds.width(), maxWidth );
+        return new StaticLayout( text, paint, width, Alignment.ALIGN_CENTER, 1, 0, false );
+    }
+
+    /**
+     * Estimates the memory of a cached layout : the layout and its paint, the chars of its text, and the start, top,
+     * descent and directions of each of its lines. Texts of labels are strings, they hold no spans.
+     * 
+     * @param text
+     *            the text of the layout.
+     * @param layout
+     *            the layout.
+     * @return the estimated memory of the layout, in bytes.
+     */
+    static int estimateSize( String text, Layout layout ) {
+        return LAYOUT_SIZE + 2 * text.length() + ( layout.getLineCount() + 1 ) * LINE_SIZE;
+    }
+
+    /**
+     * Clears the cache if the font scale or the locale changed since last call. Orientation changes keep cached
+     * layouts.
+     * 
+     * @param configuration
+     *            the current configuration.
+     */
+    public synchronized void onConfigurationChanged( Configuration configuration ) {
+        boolean isChanged = locale != null && ( fontScale != configuration.fontScale || !locale.equals( configuration.locale ) );
+        fontScale = configuration.fontScale;
+        locale = configuration.locale;
+        if ( isChanged ) {
+            layoutCache.evictAll();
+        }
+    }
+
+    /**
+     * Removes all cached layouts.
+     */
+    public void evictAll() {
+        layoutCache.evictAll();
+    }
+
+    /**
+     * @return the estimated memory of cached layouts, in bytes.
+     */
+    public int size() {
+        return layoutCache.size();
+    }
+
+    public int maxSize() {
+        return layoutCache.maxSize();
+    }
+
+    public long getHitCount() {
+        return layoutCache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return layoutCache.getMissCount();
+    }
+
+    /**
+     * Key of a cached layout.
+     * 
+     * @author sni
+     * 
+     */
+    private static final class Key {
+        private final String text;
+        private final int maxWidth;
+        private final float textSize;
+        private final float textScaleX;
+        private final float textSkewX;
+        private final Typeface typeface;
+        private final int flags;
+        private final int textAlign;
+        private final int color;
+        private final int style;
+        private final float strokeWidth;
+        private final Shader shader;
+        private final MaskFilter maskFilter;
+        private final ColorFilter colorFilter;
+        private final float shadowRadius;
+        private final float shadowDx;
+        private final float shadowDy;
+        private final int shadowColor;
+        private final int hashCode;
+
+        private Key( String text, LabelTextPaint paint, int maxWidth ) {
+            this.text = text;
+            this.maxWidth = maxWidth;
+            this.textSize = paint.getTextSize();
+            this.textScaleX = paint.getTextScaleX();
+            this.textSkewX = paint.getTextSkewX();
+            this.typeface = paint.getTypeface();
+            this.flags = paint.getFlags();
+            this.textAlign = paint.getTextAlign().ordinal();
+            this.color = paint.getColor();
+            this.style = paint.getStyle().ordinal();
+            this.strokeWidth = paint.getStrokeWidth();
+            this.shader = paint.getShader();
+            this.maskFilter = paint.getMaskFilter();
+            this.colorFilter = paint.getColorFilter();
+            this.shadowRadius = paint.getShadowRadius();
+            this.shadowDx = paint.getShadowDx();
+            this.shadowDy = paint.getShadowDy();
+            this.shadowColor = paint.getShadowColor();
+            int result = text.hashCode();
+            result = 31 * result + maxWidth;
+            result = 31 * result + Float.floatToIntBits( textSize );
+            result = 31 * result + Float.floatToIntBits( textScaleX );
+            result = 31 * result + Float.floatToIntBits( textSkewX );
+            result = 31 * result + ( typeface == null ? 0 : typeface.hashCode() );
+            result = 31 * result + flags;
+            result = 31 * result + textAlign;
+            result = 31 * result + color;
+            result = 31 * result + style;
+            result = 31 * result + Float.floatToIntBits( strokeWidth );
+            result = 31 * result + System.identityHashCode( shader );
+            result = 31 * result + System.identityHashCode( maskFilter );
+            result = 31 * result + System.identityHashCode( colorFilter );
+            result = 31 * result + Float.floatToIntBits( shadowRadius );
+            result = 31 * result + Float.floatToIntBits( shadowDx );
+            result = 31 * result + Float.floatToIntBits( shadowDy );
+            result = 31 * result + shadowColor;
+            this.hashCode = result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj ) {
+            if ( this == obj ) {
+                return true;
+            }
+            if ( !( obj instanceof Key ) ) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && maxWidth == other.maxWidth && textSize == other.textSize && textScaleX == other.textScaleX
+                    && textSkewX == other.textSkewX && flags == other.flags && textAlign == other.textAlign && color == other.color
+                    && style == other.style && strokeWidth == other.strokeWidth && shader == other.shader && maskFilter == other.maskFilter
+                    && colorFilter == other.colorFilter && shadowRadius == other.shadowRadius && shadowDx == other.shadowDx
+                    && shadowDy == other.shadowDy && shadowColor == other.shadowColor
+                    && ( typeface == null ? other.typeface == null : typeface.equals( other.typeface ) ) && text.equals( other.text );
+        }
+    }
+}
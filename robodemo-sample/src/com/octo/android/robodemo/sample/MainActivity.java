@@ -6,17 +6,17 @@ import java.util.List;
 import android.app.Activity;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.ArrayAdapter;
-import android.widget.Button;
 import android.widget.ListView;
 
+import com.octo.android.robodemo.DemoStateStore;
 import com.octo.android.robodemo.LabeledPoint;
 import com.octo.android.robodemo.R;
 import com.octo.android.robodemo.RoboDemo;
+import com.octo.android.robodemo.core.DemoScript;
 
 /**
  * Sample activity to be explained by RoboDemo.
@@ -34,6 +34,8 @@ public class MainActivity extends Activity {
 
     /** The id used to identifiy the robodemo "instance" related to this activity. */
     private final static String DEMO_ACTIVITY_ID = "demo-main-activity";
+    /** The asset holding the demos compiled from the demos folder at build time. */
+    private final static String DEMO_SCRIPT_ASSET = "demos.rds";
     /** A boolean holding the internal state of the activity under RoboDemo, whether or not to display RoboDemo. */
     private boolean showDemo = true;
 
@@ -42,7 +44,6 @@ public class MainActivity extends Activity {
     private static final int ITEM_COUNT = 100;
     private ListView listMain;
     private ArrayAdapter< String > arrayAdapter;
-    private Button clearButton;
 
     @Override
     public void onCreate( Bundle savedInstanceState ) {
@@ -50,7 +51,6 @@ public class MainActivity extends Activity {
         setContentView( R.layout.activity_main );
 
         listMain = (ListView) findViewById( R.id.listview_main );
-        clearButton = (Button) findViewById( R.id.button_clear );
         refreshList();
     }
 
@@ -88,12 +88,7 @@ public class MainActivity extends Activity {
         List< String > listItems = initListItem();
         arrayAdapter = new ArrayAdapter< String >( this, android.R.layout.simple_list_item_1, listItems );
         listMain.setAdapter( arrayAdapter );
-        new Handler().postDelayed( new Runnable() {
-            @Override
-            public void run() {
-                displayDemoIfNeeded();
-            }
-        }, 500 );
+        displayDemoIfNeeded();
     }
 
     // --------------------------------------------------
@@ -104,25 +99,47 @@ public class MainActivity extends Activity {
      * Displays demo if never show again has never been checked by the user.
      */
     private void displayDemoIfNeeded() {
+        // the state of demos may still be loading, the UI thread must not wait for it.
+        RoboDemo.isNeverShowAgain( this, DEMO_ACTIVITY_ID, new DemoStateStore.OnDemoStateLoadedListener() {
+            @Override
+            public void onDemoStateLoaded( String demoActivityId, boolean isNeverShowAgain ) {
+                displayDemoIfNeeded( isNeverShowAgain );
+            }
+        } );
+    }
 
-        boolean neverShowDemoAgain = RoboDemo.isNeverShowAgain( this, DEMO_ACTIVITY_ID );
-
-        if ( !neverShowDemoAgain && showDemo ) {
+    private void displayDemoIfNeeded( boolean neverShowDemoAgain ) {
+        if ( !neverShowDemoAgain && showDemo && !isFinishing() ) {
             showDemo = false;
-            ArrayList< LabeledPoint > arrayListPoints = new ArrayList< LabeledPoint >();
-
-            // create a list of LabeledPoints
-            LabeledPoint p = new LabeledPoint( clearButton, getString( R.string.text_move_demo_step_1 ) );
-            arrayListPoints.add( p );
+            // the script is read from the apk in background, the UI thread must not wait for it.
+            RoboDemo.openDemoScript( this, DEMO_SCRIPT_ASSET, new RoboDemo.OnDemoScriptOpenedListener() {
+                @Override
+                public void onDemoScriptOpened( String assetName, DemoScript demoScript ) {
+                    if ( demoScript != null && !isFinishing() ) {
+                        displayDemo( demoScript );
+                    }
+                }
+            } );
+        }
+    }
 
-            p = new LabeledPoint( this, 0.95f, 0.05f, getString( R.string.text_move_demo_step_2 ) );
-            arrayListPoints.add( p );
+    private void displayDemo( final DemoScript demoScript ) {
+        // points are defined in demos/main_activity.demo, the location of views is read once the layout is complete.
+        final ArrayList< LabeledPoint > arrayListPoints = RoboDemo.createDemoPoints( this, demoScript, DEMO_ACTIVITY_ID );
+        RoboDemo.resolveAnchors( this, arrayListPoints, new RoboDemo.OnAnchorsResolvedListener() {
+            @Override
+            public void onAnchorsResolved( List< LabeledPoint > listPoints ) {
+                startDemoActivity( arrayListPoints, demoScript.getDelayBetweenPoints( demoScript.findDemo( DEMO_ACTIVITY_ID ) ) );
+            }
+        } );
+    }
 
-            // start DemoActivity.
-            Intent intent = new Intent( this, MainActivityDemoActivity.class );
-            RoboDemo.prepareDemoActivityIntent( intent, DEMO_ACTIVITY_ID, arrayListPoints );
-            startActivity( intent );
-        }
+    private void startDemoActivity( ArrayList< LabeledPoint > arrayListPoints, long delayBetweenPoints ) {
+        // start DemoActivity.
+        Intent intent = new Intent( this, MainActivityDemoActivity.class );
+        RoboDemo.prepareDemoActivityIntent( intent, DEMO_ACTIVITY_ID, arrayListPoints );
+        RoboDemo.setDelayBetweenPoints( intent, delayBetweenPoints );
+        startActivity( intent );
     }
 
     /**